@@ -0,0 +1,121 @@
+package org.smartboot.aio;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Control;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Future 风格接口的压测,对比无锁实现与 1.0.0 版本的 synchronized 实现。
+ * 该类位于 org.smartboot.aio 包下,以便访问包内可见的 FutureCompletionHandler。
+ * <ul>
+ *     <li>completeThenGet: 结果已就绪时的 get 开销</li>
+ *     <li>handoff: 一个线程阻塞于 get,另一个线程完成 Future,对应 Worker 线程回调唤醒业务线程的场景</li>
+ * </ul>
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class FutureCompletionHandlerBenchmark {
+    private static final Integer RESULT = 1;
+
+    @Benchmark
+    public Integer completeThenGetLockFree() throws ExecutionException, InterruptedException {
+        FutureCompletionHandler<Integer, Object> future = new FutureCompletionHandler<>();
+        future.completed(RESULT, null);
+        return future.get();
+    }
+
+    @Benchmark
+    public Integer completeThenGetLegacy() throws ExecutionException, InterruptedException {
+        LegacyFutureCompletionHandler<Integer, Object> future = new LegacyFutureCompletionHandler<>();
+        future.completed(RESULT, null);
+        return future.get();
+    }
+
+    @Benchmark
+    @Group("handoffLockFree")
+    @GroupThreads(1)
+    public Integer lockFreeWaiter(Handoff handoff) throws InterruptedException, ExecutionException {
+        FutureCompletionHandler<Integer, Object> future = new FutureCompletionHandler<>();
+        return handoff.await(future);
+    }
+
+    @Benchmark
+    @Group("handoffLockFree")
+    @GroupThreads(1)
+    @SuppressWarnings("unchecked")
+    public void lockFreeCompleter(Handoff handoff, Control control) {
+        Future<Integer> future = handoff.take(control);
+        if (future != null) {
+            ((FutureCompletionHandler<Integer, Object>) future).completed(RESULT, null);
+        }
+    }
+
+    @Benchmark
+    @Group("handoffLegacy")
+    @GroupThreads(1)
+    public Integer legacyWaiter(Handoff handoff) throws InterruptedException, ExecutionException {
+        LegacyFutureCompletionHandler<Integer, Object> future = new LegacyFutureCompletionHandler<>();
+        return handoff.await(future);
+    }
+
+    @Benchmark
+    @Group("handoffLegacy")
+    @GroupThreads(1)
+    @SuppressWarnings("unchecked")
+    public void legacyCompleter(Handoff handoff, Control control) {
+        Future<Integer> future = handoff.take(control);
+        if (future != null) {
+            ((LegacyFutureCompletionHandler<Integer, Object>) future).completed(RESULT, null);
+        }
+    }
+
+    /**
+     * 等待线程与完成线程之间传递 Future 的槽位
+     */
+    @State(Scope.Group)
+    public static class Handoff {
+        private final AtomicReference<Future<Integer>> slot = new AtomicReference<>();
+
+        Integer await(Future<Integer> future) throws InterruptedException, ExecutionException {
+            slot.set(future);
+            try {
+                //迭代结束时完成线程可能已退出,采用带超时的get避免压测挂起
+                return future.get(1, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                slot.compareAndSet(future, null);
+                return null;
+            }
+        }
+
+        Future<Integer> take(Control control) {
+            Future<Integer> future;
+            while ((future = slot.getAndSet(null)) == null) {
+                if (control.stopMeasurement) {
+                    return null;
+                }
+            }
+            return future;
+        }
+    }
+}
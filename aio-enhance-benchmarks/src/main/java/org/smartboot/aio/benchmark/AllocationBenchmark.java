@@ -0,0 +1,80 @@
+package org.smartboot.aio.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 稳态读写循环的内存分配压测，需配合 -prof gc 运行，关注 gc.alloc.rate.norm（B/op）。
+ * 消息长度不超过127字节，确保 CompletionHandler 回调结果的 Integer 装箱命中 JDK 缓存；
+ * 更大的消息可追加 -XX:AutoBoxCacheMax 参数。
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class AllocationBenchmark {
+
+    @Benchmark
+    public int echo(ClientState client) throws IOException {
+        return client.client.roundTrip();
+    }
+
+    @State(Scope.Benchmark)
+    public static class AllocationServerState {
+        @Param({Providers.ENHANCE})
+        public String provider;
+        /**
+         * 服务端读超时，0表示不设置超时
+         */
+        @Param({"0", "30000"})
+        public long readTimeout;
+
+        EchoServer server;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            server = new EchoServer(provider, 1, 4096, readTimeout);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            server.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ClientState {
+        @Param({"64"})
+        public int messageSize;
+
+        BlockingClient client;
+
+        @Setup(Level.Trial)
+        public void setup(AllocationServerState serverState) throws IOException {
+            client = new BlockingClient(serverState.server.getAddress(), messageSize, 1);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            client.close();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.smartboot.aio.benchmark;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * 压测客户端，采用阻塞式 SocketChannel，保证被测对象仅为服务端所使用的 AsynchronousChannelProvider
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+final class BlockingClient implements Closeable {
+    private final SocketChannel channel;
+    private final ByteBuffer request;
+    private final ByteBuffer response;
+
+    /**
+     * @param address     服务端地址
+     * @param messageSize 单个请求的字节数
+     * @param depth       每次发送的请求数，大于1即为 pipeline 模式
+     */
+    BlockingClient(InetSocketAddress address, int messageSize, int depth) throws IOException {
+        this(address, ByteBuffer.allocateDirect(messageSize * depth), ByteBuffer.allocateDirect(messageSize * depth));
+    }
+
+    private BlockingClient(InetSocketAddress address, ByteBuffer request, ByteBuffer response) throws IOException {
+        channel = SocketChannel.open();
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        channel.connect(address);
+        this.request = request;
+        while (request.hasRemaining()) {
+            request.put((byte) request.position());
+        }
+        this.response = response;
+    }
+
+    /**
+     * 下载客户端,每次发送1字节请求并接收 fileSize 字节的响应
+     */
+    static BlockingClient download(InetSocketAddress address, int fileSize) throws IOException {
+        return new BlockingClient(address, ByteBuffer.allocateDirect(1), ByteBuffer.allocateDirect(fileSize));
+    }
+
+    /**
+     * 发送全部请求，并等待完整的响应
+     *
+     * @return 响应的字节数
+     */
+    int roundTrip() throws IOException {
+        request.clear();
+        while (request.hasRemaining()) {
+            channel.write(request);
+        }
+        response.clear();
+        while (response.hasRemaining()) {
+            if (channel.read(response) < 0) {
+                throw new EOFException();
+            }
+        }
+        return response.position();
+    }
+
+    /**
+     * 以 RST 方式关闭连接，不进入 TIME_WAIT
+     */
+    void reset() throws IOException {
+        channel.setOption(StandardSocketOptions.SO_LINGER, 0);
+        channel.close();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
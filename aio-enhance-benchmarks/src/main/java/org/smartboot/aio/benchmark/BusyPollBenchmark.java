@@ -0,0 +1,87 @@
+package org.smartboot.aio.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 环回地址 ping-pong 延迟压测：单条连接逐个请求应答，对比阻塞 select 与 org.smartboot.aio.busyPoll 轮询的回显延迟。
+ * 轮询期间 Worker 持续占用一个 CPU，须在核数多于压测线程与读 Worker 之和的机器上运行，否则轮询会与客户端争抢 CPU
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Threads(1)
+@Fork(1)
+public class BusyPollBenchmark {
+
+    @Benchmark
+    public int pingPong(ClientState client) throws IOException {
+        return client.client.roundTrip();
+    }
+
+    @State(Scope.Benchmark)
+    public static class BusyPollServerState {
+        /**
+         * 阻塞select之前的轮询时长(微秒),0为不轮询
+         */
+        @Param({"0", "50", "1000"})
+        public int busyPoll;
+        @Param({"false", "true"})
+        public boolean threadPerCore;
+        @Param({"1"})
+        public int serverThreads;
+
+        EchoServer server;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            System.setProperty("org.smartboot.aio.busyPoll", String.valueOf(busyPoll));
+            System.setProperty("org.smartboot.aio.threadPerCore", String.valueOf(threadPerCore));
+            server = new EchoServer(Providers.ENHANCE, serverThreads, 4096);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            server.close();
+            System.clearProperty("org.smartboot.aio.busyPoll");
+            System.clearProperty("org.smartboot.aio.threadPerCore");
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ClientState {
+        @Param({"64"})
+        public int messageSize;
+
+        BlockingClient client;
+
+        @Setup(Level.Trial)
+        public void setup(BusyPollServerState serverState) throws IOException {
+            client = new BlockingClient(serverState.server.getAddress(), messageSize, 1);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            client.close();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.smartboot.aio.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 短连接风暴压测：每次操作新建连接、完成一次回显后立即关闭，主要考察 accept 与首次 register 路径。
+ * 客户端以 RST 方式关闭连接，避免压测过程中 TIME_WAIT 耗尽本地端口。
+ * shardedConnect 开启 org.smartboot.aio.shardedAccept，对比单一监听与按 accept 线程数分片监听（SO_REUSEPORT，JDK9+）的 accept 吞吐量，
+ * 以及 org.smartboot.aio.acceptBatch 单次可接入事件批量接入连接的效果
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ConnectionStormBenchmark {
+
+    @Benchmark
+    public int connect(ServerState serverState) throws IOException {
+        return roundTrip(serverState.server);
+    }
+
+    @Benchmark
+    public int shardedConnect(ShardedServerState serverState) throws IOException {
+        return roundTrip(serverState.server);
+    }
+
+    private static int roundTrip(EchoServer server) throws IOException {
+        BlockingClient client = new BlockingClient(server.getAddress(), 16, 1);
+        try {
+            return client.roundTrip();
+        } finally {
+            client.reset();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class ShardedServerState {
+        /**
+         * accept 线程数，即监听分片数；为1时退化为单一监听
+         */
+        @Param({"1", "4"})
+        public int acceptThreads;
+        /**
+         * 单次可接入事件中最多接入的连接数
+         */
+        @Param({"1", "16"})
+        public int acceptBatch;
+        @Param({"4"})
+        public int serverThreads;
+
+        EchoServer server;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            System.setProperty("org.smartboot.aio.shardedAccept", "true");
+            System.setProperty("org.smartboot.aio.acceptThreadNum", String.valueOf(acceptThreads));
+            System.setProperty("org.smartboot.aio.acceptBatch", String.valueOf(acceptBatch));
+            server = new EchoServer(Providers.ENHANCE, serverThreads, 4096);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            server.close();
+            System.clearProperty("org.smartboot.aio.shardedAccept");
+            System.clearProperty("org.smartboot.aio.acceptThreadNum");
+            System.clearProperty("org.smartboot.aio.acceptBatch");
+        }
+    }
+}
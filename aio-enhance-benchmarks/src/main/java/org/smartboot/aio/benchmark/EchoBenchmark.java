@@ -0,0 +1,56 @@
+package org.smartboot.aio.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 环回地址上的单请求回显压测，每个压测线程独占一条连接。
+ * Throughput 给出吞吐量，SampleTime 给出 p50/p99/p999 延迟，附加 -prof gc 可得每次操作的内存分配量。
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class EchoBenchmark {
+
+    @Benchmark
+    public int echo(ClientState client) throws IOException {
+        return client.client.roundTrip();
+    }
+
+    @State(Scope.Thread)
+    public static class ClientState {
+        @Param({"64", "1024"})
+        public int messageSize;
+
+        BlockingClient client;
+
+        @Setup(Level.Trial)
+        public void setup(ServerState serverState) throws IOException {
+            client = new BlockingClient(serverState.server.getAddress(), messageSize, 1);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            client.close();
+        }
+    }
+}
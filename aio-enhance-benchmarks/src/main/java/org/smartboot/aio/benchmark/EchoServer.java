@@ -0,0 +1,140 @@
+package org.smartboot.aio.benchmark;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousChannelGroup;
+import java.nio.channels.AsynchronousServerSocketChannel;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.spi.AsynchronousChannelProvider;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 AIO 接口实现的回显服务，读到多少数据便原样写回多少数据。
+ * 服务端的 accept/read/write 全部经由被测的 AsynchronousChannelProvider 完成。
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+final class EchoServer implements Closeable {
+    private final AsynchronousChannelGroup group;
+    private final AsynchronousServerSocketChannel serverChannel;
+    private final InetSocketAddress address;
+    private final int bufferSize;
+    /**
+     * 读超时时长,大于0时采用带超时的read
+     */
+    private final long readTimeoutMillis;
+
+    EchoServer(String providerType, int threadNum, int bufferSize) throws IOException {
+        this(providerType, threadNum, bufferSize, 0);
+    }
+
+    EchoServer(String providerType, int threadNum, int bufferSize, long readTimeoutMillis) throws IOException {
+        this.bufferSize = bufferSize;
+        this.readTimeoutMillis = readTimeoutMillis;
+        AsynchronousChannelProvider provider = Providers.provider(providerType);
+        group = Providers.openGroup(provider, threadNum, "echo-" + providerType + "-");
+        serverChannel = provider.openAsynchronousServerSocketChannel(group);
+        serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 4096);
+        address = (InetSocketAddress) serverChannel.getLocalAddress();
+        serverChannel.accept(null, new CompletionHandler<AsynchronousSocketChannel, Void>() {
+            @Override
+            public void completed(AsynchronousSocketChannel channel, Void attachment) {
+                serverChannel.accept(null, this);
+                //与客户端一致关闭Nagle,避免大包回显时分段写出的尾包等待延迟ACK
+                try {
+                    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                } catch (IOException ignored) {
+                }
+                new Connection(channel).read();
+            }
+
+            @Override
+            public void failed(Throwable exc, Void attachment) {
+                if (serverChannel.isOpen()) {
+                    exc.printStackTrace();
+                }
+            }
+        });
+    }
+
+    InetSocketAddress getAddress() {
+        return address;
+    }
+
+    AsynchronousChannelGroup getGroup() {
+        return group;
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverChannel.close();
+        group.shutdownNow();
+        try {
+            group.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 单个连接的回显处理器，读写回调复用同一个对象，避免压测引入额外的内存分配
+     */
+    private final class Connection {
+        private final AsynchronousSocketChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize);
+        private final CompletionHandler<Integer, Void> readHandler = new CompletionHandler<Integer, Void>() {
+            @Override
+            public void completed(Integer result, Void attachment) {
+                if (result < 0) {
+                    close();
+                    return;
+                }
+                buffer.flip();
+                channel.write(buffer, null, writeHandler);
+            }
+
+            @Override
+            public void failed(Throwable exc, Void attachment) {
+                close();
+            }
+        };
+        private final CompletionHandler<Integer, Void> writeHandler = new CompletionHandler<Integer, Void>() {
+            @Override
+            public void completed(Integer result, Void attachment) {
+                if (buffer.hasRemaining()) {
+                    channel.write(buffer, null, this);
+                    return;
+                }
+                read();
+            }
+
+            @Override
+            public void failed(Throwable exc, Void attachment) {
+                close();
+            }
+        };
+
+        Connection(AsynchronousSocketChannel channel) {
+            this.channel = channel;
+        }
+
+        void read() {
+            buffer.clear();
+            channel.read(buffer, readTimeoutMillis, TimeUnit.MILLISECONDS, null, readHandler);
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
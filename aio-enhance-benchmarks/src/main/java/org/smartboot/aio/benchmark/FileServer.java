@@ -0,0 +1,186 @@
+package org.smartboot.aio.benchmark;
+
+import org.smartboot.aio.EnhanceAsynchronousChannelProvider;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousChannelGroup;
+import java.nio.channels.AsynchronousServerSocketChannel;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
+import java.nio.channels.spi.AsynchronousChannelProvider;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文件下载服务：每读到1字节请求，便将整个文件发送给客户端。
+ * transferFrom 模式由 aio-enhance 通过 FileChannel.transferTo 直接输出，mapped 模式由 aio-enhance 按窗口映射后输出，
+ * heap 模式先将文件读入堆内 buffer 再逐块 write。
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+final class FileServer implements Closeable {
+    /**
+     * 经由 FileChannel.transferTo(sendfile) 输出
+     */
+    static final String TRANSFER_FROM = "transferFrom";
+    /**
+     * 经由 writeMapped 按窗口映射输出
+     */
+    static final String MAPPED = "mapped";
+    /**
+     * 读入堆内 buffer 后 write
+     */
+    static final String HEAP = "heap";
+    private static final int HEAP_BUFFER_SIZE = 64 * 1024;
+    private final AsynchronousChannelGroup group;
+    private final AsynchronousServerSocketChannel serverChannel;
+    private final InetSocketAddress address;
+    private final RandomAccessFile randomAccessFile;
+    private final FileChannel fileChannel;
+    private final long fileSize;
+    private final String mode;
+
+    FileServer(int threadNum, File file, String mode) throws IOException {
+        if (!TRANSFER_FROM.equals(mode) && !MAPPED.equals(mode) && !HEAP.equals(mode)) {
+            throw new IllegalArgumentException("unknown mode: " + mode);
+        }
+        this.mode = mode;
+        randomAccessFile = new RandomAccessFile(file, "r");
+        fileChannel = randomAccessFile.getChannel();
+        fileSize = fileChannel.size();
+        AsynchronousChannelProvider provider = Providers.provider(Providers.ENHANCE);
+        group = Providers.openGroup(provider, threadNum, "file-" + mode + "-");
+        serverChannel = provider.openAsynchronousServerSocketChannel(group);
+        serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 4096);
+        address = (InetSocketAddress) serverChannel.getLocalAddress();
+        serverChannel.accept(null, new CompletionHandler<AsynchronousSocketChannel, Void>() {
+            @Override
+            public void completed(AsynchronousSocketChannel channel, Void attachment) {
+                serverChannel.accept(null, this);
+                new Connection(channel).read();
+            }
+
+            @Override
+            public void failed(Throwable exc, Void attachment) {
+                if (serverChannel.isOpen()) {
+                    exc.printStackTrace();
+                }
+            }
+        });
+    }
+
+    InetSocketAddress getAddress() {
+        return address;
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverChannel.close();
+        group.shutdownNow();
+        try {
+            group.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        randomAccessFile.close();
+    }
+
+    private final class Connection {
+        private final AsynchronousSocketChannel channel;
+        private final ByteBuffer request = ByteBuffer.allocateDirect(1);
+        private ByteBuffer heapBuffer;
+        private long position;
+        private final CompletionHandler<Integer, Void> readHandler = new CompletionHandler<Integer, Void>() {
+            @Override
+            public void completed(Integer result, Void attachment) {
+                if (result < 0) {
+                    close();
+                    return;
+                }
+                if (TRANSFER_FROM.equals(mode)) {
+                    EnhanceAsynchronousChannelProvider.transferFrom(channel, fileChannel, 0, fileSize, null, transferHandler);
+                } else if (MAPPED.equals(mode)) {
+                    EnhanceAsynchronousChannelProvider.writeMapped(channel, fileChannel, 0, fileSize, null, transferHandler);
+                } else {
+                    position = 0;
+                    writeHeap();
+                }
+            }
+
+            @Override
+            public void failed(Throwable exc, Void attachment) {
+                close();
+            }
+        };
+        private final CompletionHandler<Long, Void> transferHandler = new CompletionHandler<Long, Void>() {
+            @Override
+            public void completed(Long result, Void attachment) {
+                read();
+            }
+
+            @Override
+            public void failed(Throwable exc, Void attachment) {
+                close();
+            }
+        };
+        private final CompletionHandler<Integer, Void> heapHandler = new CompletionHandler<Integer, Void>() {
+            @Override
+            public void completed(Integer result, Void attachment) {
+                if (heapBuffer.hasRemaining()) {
+                    channel.write(heapBuffer, null, this);
+                } else if (position < fileSize) {
+                    writeHeap();
+                } else {
+                    read();
+                }
+            }
+
+            @Override
+            public void failed(Throwable exc, Void attachment) {
+                close();
+            }
+        };
+
+        Connection(AsynchronousSocketChannel channel) {
+            this.channel = channel;
+        }
+
+        void read() {
+            request.clear();
+            channel.read(request, null, readHandler);
+        }
+
+        void writeHeap() {
+            if (heapBuffer == null) {
+                heapBuffer = ByteBuffer.allocate(HEAP_BUFFER_SIZE);
+            }
+            heapBuffer.clear();
+            try {
+                while (heapBuffer.hasRemaining() && position < fileSize) {
+                    position += fileChannel.read(heapBuffer, position);
+                }
+            } catch (IOException e) {
+                close();
+                return;
+            }
+            heapBuffer.flip();
+            channel.write(heapBuffer, null, heapHandler);
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.smartboot.aio.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 环回地址文件下载压测：对比 transferFrom(sendfile)、writeMapped(窗口映射) 与读入堆内 buffer 后 write 的吞吐量。
+ * 文件大于 socket 发送缓冲区时须经多次可写事件才能输出完毕；映射窗口大小可通过 -jvmArgsAppend -Dorg.smartboot.aio.mappedWindowSize 调整。
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class FileTransferBenchmark {
+
+    @Benchmark
+    public int download(ClientState client) throws IOException {
+        return client.client.roundTrip();
+    }
+
+    @State(Scope.Benchmark)
+    public static class FileServerState {
+        @Param({FileServer.TRANSFER_FROM, FileServer.MAPPED, FileServer.HEAP})
+        public String mode;
+        @Param({"65536", "16777216"})
+        public int fileSize;
+        @Param({"2"})
+        public int serverThreads;
+
+        FileServer server;
+        private File file;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            file = File.createTempFile("aio-enhance-", ".bin");
+            byte[] block = new byte[64 * 1024];
+            for (int i = 0; i < block.length; i++) {
+                block[i] = (byte) i;
+            }
+            try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+                for (int written = 0; written < fileSize; written += block.length) {
+                    randomAccessFile.write(block, 0, Math.min(block.length, fileSize - written));
+                }
+            }
+            server = new FileServer(serverThreads, file, mode);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            server.close();
+            file.delete();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ClientState {
+        BlockingClient client;
+
+        @Setup(Level.Trial)
+        public void setup(FileServerState serverState) throws IOException {
+            client = BlockingClient.download(serverState.server.getAddress(), serverState.fileSize);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            client.close();
+        }
+    }
+}
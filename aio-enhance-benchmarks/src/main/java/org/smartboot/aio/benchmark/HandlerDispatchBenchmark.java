@@ -0,0 +1,81 @@
+package org.smartboot.aio.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 回调执行方式压测：对比在 Worker 线程中直接回调与 org.smartboot.aio.handlerDispatch 转交至其他线程执行时的回显吞吐量及延迟，
+ * 即转交本身引入的开销。executor 转交至有界业务线程池（线程数及队列长度见 org.smartboot.aio.handlerThreads、handlerQueueSize）；
+ * virtual 须在 JDK21 及以上运行，低版本将退化为 inline。
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Threads(4)
+@Fork(1)
+public class HandlerDispatchBenchmark {
+
+    @Benchmark
+    public int echo(ClientState client) throws IOException {
+        return client.client.roundTrip();
+    }
+
+    @State(Scope.Benchmark)
+    public static class DispatchServerState {
+        @Param({"inline", "executor", "virtual"})
+        public String handlerDispatch;
+        @Param({"4"})
+        public int serverThreads;
+
+        EchoServer server;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            System.setProperty("org.smartboot.aio.handlerDispatch", handlerDispatch);
+            server = new EchoServer(Providers.ENHANCE, serverThreads, 4096);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            server.close();
+            System.clearProperty("org.smartboot.aio.handlerDispatch");
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ClientState {
+        @Param({"64"})
+        public int messageSize;
+
+        BlockingClient client;
+
+        @Setup(Level.Trial)
+        public void setup(DispatchServerState serverState) throws IOException {
+            client = new BlockingClient(serverState.server.getAddress(), messageSize, 1);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            client.close();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.smartboot.aio.benchmark;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+
+/**
+ * 单线程驱动大量连接的压测客户端：每一轮向全部连接各发送一个请求，并等待所有连接收到完整回显。
+ * 用于在服务端制造高并发的就绪事件
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+final class MultiplexClient implements Closeable {
+    private final Selector selector;
+    private final SocketChannel[] channels;
+    private final ByteBuffer request;
+    private final ByteBuffer[] responses;
+
+    MultiplexClient(InetSocketAddress address, int connections, int messageSize) throws IOException {
+        selector = Selector.open();
+        channels = new SocketChannel[connections];
+        responses = new ByteBuffer[connections];
+        request = ByteBuffer.allocateDirect(messageSize);
+        while (request.hasRemaining()) {
+            request.put((byte) request.position());
+        }
+        for (int i = 0; i < connections; i++) {
+            SocketChannel channel = SocketChannel.open();
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.connect(address);
+            channel.configureBlocking(false);
+            responses[i] = ByteBuffer.allocateDirect(messageSize);
+            channel.register(selector, SelectionKey.OP_READ, responses[i]);
+            channels[i] = channel;
+        }
+    }
+
+    /**
+     * 全部连接各完成一次回显
+     *
+     * @return 完成回显的连接数
+     */
+    int round() throws IOException {
+        for (int i = 0; i < channels.length; i++) {
+            request.clear();
+            //请求远小于socket发送缓冲区,单次write即可输出完毕
+            channels[i].write(request);
+            responses[i].clear();
+        }
+        int pending = channels.length;
+        while (pending > 0) {
+            selector.select();
+            Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+            while (iterator.hasNext()) {
+                SelectionKey key = iterator.next();
+                iterator.remove();
+                ByteBuffer response = (ByteBuffer) key.attachment();
+                if (((SocketChannel) key.channel()).read(response) < 0) {
+                    throw new EOFException();
+                }
+                if (!response.hasRemaining()) {
+                    pending--;
+                }
+            }
+        }
+        return channels.length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (SocketChannel channel : channels) {
+            if (channel != null) {
+                channel.close();
+            }
+        }
+        selector.close();
+    }
+}
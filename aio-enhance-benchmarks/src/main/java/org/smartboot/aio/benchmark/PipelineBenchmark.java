@@ -0,0 +1,57 @@
+package org.smartboot.aio.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * pipeline 模式压测，客户端一次性发出 depth 个请求后再等待全部响应，对应 TFB plaintext 场景
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PipelineBenchmark {
+
+    @Benchmark
+    public int pipeline(ClientState client) throws IOException {
+        return client.client.roundTrip();
+    }
+
+    @State(Scope.Thread)
+    public static class ClientState {
+        @Param({"64"})
+        public int messageSize;
+        @Param({"16"})
+        public int depth;
+
+        BlockingClient client;
+
+        @Setup(Level.Trial)
+        public void setup(ServerState serverState) throws IOException {
+            client = new BlockingClient(serverState.server.getAddress(), messageSize, depth);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            client.close();
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package org.smartboot.aio.benchmark;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousChannelGroup;
+import java.nio.channels.AsynchronousServerSocketChannel;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.spi.AsynchronousChannelProvider;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 模拟 pipeline 场景下的请求/响应服务：每解析出一个定长请求，便为其单独发起一次 write。
+ * 未启用 org.smartboot.aio.writeQueue 时，与多数通信框架一样在应用层维护输出队列，逐个 write；
+ * 启用后直接调用 write，由 aio-enhance 合并为 gathering write。
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+final class PipelineServer implements Closeable {
+    /**
+     * 每个连接预分配的响应 buffer 数，须不小于客户端的 pipeline 深度
+     */
+    private static final int RESPONSE_SLOTS = 256;
+    private final AsynchronousChannelGroup group;
+    private final AsynchronousServerSocketChannel serverChannel;
+    private final InetSocketAddress address;
+    private final int messageSize;
+    private final boolean writeQueue;
+
+    PipelineServer(String providerType, int threadNum, int messageSize, boolean writeQueue) throws IOException {
+        this.messageSize = messageSize;
+        this.writeQueue = writeQueue;
+        AsynchronousChannelProvider provider = Providers.provider(providerType);
+        group = Providers.openGroup(provider, threadNum, "pipeline-" + providerType + "-");
+        serverChannel = provider.openAsynchronousServerSocketChannel(group);
+        serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 4096);
+        address = (InetSocketAddress) serverChannel.getLocalAddress();
+        serverChannel.accept(null, new CompletionHandler<AsynchronousSocketChannel, Void>() {
+            @Override
+            public void completed(AsynchronousSocketChannel channel, Void attachment) {
+                serverChannel.accept(null, this);
+                new Connection(channel).read();
+            }
+
+            @Override
+            public void failed(Throwable exc, Void attachment) {
+                if (serverChannel.isOpen()) {
+                    exc.printStackTrace();
+                }
+            }
+        });
+    }
+
+    InetSocketAddress getAddress() {
+        return address;
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverChannel.close();
+        group.shutdownNow();
+        try {
+            group.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private final class Connection {
+        private final AsynchronousSocketChannel channel;
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(messageSize * RESPONSE_SLOTS);
+        private final ByteBuffer[] responses = new ByteBuffer[RESPONSE_SLOTS];
+        /**
+         * 应用层输出队列，仅在未启用写队列时使用
+         */
+        private final ArrayDeque<ByteBuffer> pending = new ArrayDeque<>();
+        private int responseIndex;
+        private boolean writing;
+        private final CompletionHandler<Integer, Void> readHandler = new CompletionHandler<Integer, Void>() {
+            @Override
+            public void completed(Integer result, Void attachment) {
+                if (result < 0) {
+                    close();
+                    return;
+                }
+                readBuffer.flip();
+                while (readBuffer.remaining() >= messageSize) {
+                    ByteBuffer response = responses[responseIndex++ % RESPONSE_SLOTS];
+                    response.clear();
+                    for (int i = 0; i < messageSize; i++) {
+                        response.put(readBuffer.get());
+                    }
+                    response.flip();
+                    write(response);
+                }
+                readBuffer.compact();
+                channel.read(readBuffer, null, this);
+            }
+
+            @Override
+            public void failed(Throwable exc, Void attachment) {
+                close();
+            }
+        };
+        private final CompletionHandler<Integer, ByteBuffer> writeHandler = new CompletionHandler<Integer, ByteBuffer>() {
+            @Override
+            public void completed(Integer result, ByteBuffer buffer) {
+                if (writeQueue) {
+                    return;
+                }
+                ByteBuffer next;
+                synchronized (Connection.this) {
+                    next = buffer.hasRemaining() ? buffer : pending.poll();
+                    writing = next != null;
+                }
+                if (next != null) {
+                    channel.write(next, next, this);
+                }
+            }
+
+            @Override
+            public void failed(Throwable exc, ByteBuffer buffer) {
+                close();
+            }
+        };
+
+        Connection(AsynchronousSocketChannel channel) {
+            this.channel = channel;
+            try {
+                //逐个输出小响应,需关闭Nagle算法以免与客户端的延迟ACK相互等待
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            for (int i = 0; i < RESPONSE_SLOTS; i++) {
+                responses[i] = ByteBuffer.allocateDirect(messageSize);
+            }
+        }
+
+        void read() {
+            channel.read(readBuffer, null, readHandler);
+        }
+
+        void write(ByteBuffer response) {
+            if (!writeQueue) {
+                synchronized (this) {
+                    if (writing) {
+                        pending.offer(response);
+                        return;
+                    }
+                    writing = true;
+                }
+            }
+            channel.write(response, response, writeHandler);
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.smartboot.aio.benchmark;
+
+import org.smartboot.aio.EnhanceAsynchronousChannelProvider;
+
+import java.io.IOException;
+import java.nio.channels.AsynchronousChannelGroup;
+import java.nio.channels.spi.AsynchronousChannelProvider;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 压测用的 AsynchronousChannelProvider 选择器
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+final class Providers {
+    /**
+     * aio-enhance 增强实现
+     */
+    static final String ENHANCE = "enhance";
+    /**
+     * JDK 原生实现
+     */
+    static final String JDK = "jdk";
+
+    private Providers() {
+    }
+
+    /**
+     * 获取指定类型的 AsynchronousChannelProvider。
+     * 压测进程中不可设置 java.nio.channels.spi.AsynchronousChannelProvider 系统属性，否则 JDK 类型也将被替换为增强实现。
+     *
+     * @param type enhance 或 jdk
+     */
+    static AsynchronousChannelProvider provider(String type) {
+        if (ENHANCE.equals(type)) {
+            return new EnhanceAsynchronousChannelProvider();
+        }
+        if (JDK.equals(type)) {
+            AsynchronousChannelProvider provider = AsynchronousChannelProvider.provider();
+            if (provider instanceof EnhanceAsynchronousChannelProvider) {
+                throw new IllegalStateException("java.nio.channels.spi.AsynchronousChannelProvider must not be set when benchmarking the jdk provider");
+            }
+            return provider;
+        }
+        throw new IllegalArgumentException("unknown provider: " + type);
+    }
+
+    static AsynchronousChannelGroup openGroup(AsynchronousChannelProvider provider, int threadNum, final String prefix) throws IOException {
+        return provider.openAsynchronousChannelGroup(threadNum, new ThreadFactory() {
+            private final AtomicInteger index = new AtomicInteger(0);
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, prefix + index.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+}
@@ -0,0 +1,113 @@
+package org.smartboot.aio.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.smartboot.aio.EnhanceAsynchronousChannelProvider;
+import org.smartboot.aio.WorkerMetricsMBean;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 关注事件修改次数压测：对比 org.smartboot.aio.lazyReadInterest 开启前后每次回显引起的 epoll_ctl 次数及延迟。
+ * 回调转交至其他线程（handlerDispatch=executor）时下一次读操作由其他线程发起，读事件的移除与重新关注各需一次 epoll_ctl。
+ * 每轮迭代结束时输出由 Worker 运行指标统计的 interestUpdates/op，亦可通过 strace -c -f -e epoll_ctl 核对
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Threads(4)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.smartboot.aio.metrics=true")
+public class ReadInterestBenchmark {
+
+    @Benchmark
+    public int echo(InterestServerState serverState, ClientState client) throws IOException {
+        serverState.operations.incrementAndGet();
+        return client.client.roundTrip();
+    }
+
+    @State(Scope.Benchmark)
+    public static class InterestServerState {
+        @Param({"false", "true"})
+        public boolean lazyReadInterest;
+        @Param({"inline", "executor"})
+        public String handlerDispatch;
+        @Param({"4"})
+        public int serverThreads;
+
+        EchoServer server;
+        final AtomicLong operations = new AtomicLong();
+        private long interestUpdates;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            System.setProperty("org.smartboot.aio.lazyReadInterest", String.valueOf(lazyReadInterest));
+            System.setProperty("org.smartboot.aio.handlerDispatch", handlerDispatch);
+            server = new EchoServer(Providers.ENHANCE, serverThreads, 4096);
+        }
+
+        @Setup(Level.Iteration)
+        public void startIteration() {
+            operations.set(0);
+            interestUpdates = interestUpdates();
+        }
+
+        @TearDown(Level.Iteration)
+        public void endIteration() {
+            long ops = operations.get();
+            if (ops > 0) {
+                System.out.printf("interestUpdates/op: %.3f%n", (double) (interestUpdates() - interestUpdates) / ops);
+            }
+        }
+
+        private long interestUpdates() {
+            long updates = 0;
+            for (WorkerMetricsMBean metrics : EnhanceAsynchronousChannelProvider.metrics(server.getGroup())) {
+                updates += metrics.getInterestUpdates();
+            }
+            return updates;
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            server.close();
+            System.clearProperty("org.smartboot.aio.lazyReadInterest");
+            System.clearProperty("org.smartboot.aio.handlerDispatch");
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ClientState {
+        @Param({"64"})
+        public int messageSize;
+
+        BlockingClient client;
+
+        @Setup(Level.Trial)
+        public void setup(InterestServerState serverState) throws IOException {
+            client = new BlockingClient(serverState.server.getAddress(), messageSize, 1);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            client.close();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package org.smartboot.aio.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 调度预算压测：全部连接落在同一个读 Worker 上，bulkConnections 条连接持续以大包满载收发，
+ * 压测线程各持有一条交互式小包连接，对比 org.smartboot.aio.channelByteBudget 及 org.smartboot.aio.loopTimeBudget
+ * 下交互式连接回显延迟的 p99，以及 bulk 连接的吞吐（每轮迭代结束时输出 bulk MB/s）
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Threads(4)
+@Fork(1)
+public class SchedulingBudgetBenchmark {
+
+    @Benchmark
+    public int interactive(ClientState client) throws IOException {
+        return client.client.roundTrip();
+    }
+
+    @State(Scope.Benchmark)
+    public static class BudgetServerState {
+        /**
+         * 单连接每次就绪事件的字节预算,0为不限
+         */
+        @Param({"0", "16384"})
+        public int channelByteBudget;
+        /**
+         * Worker单轮循环的时长预算(微秒),0为不限
+         */
+        @Param({"0", "200"})
+        public int loopTimeBudget;
+        @Param({"4"})
+        public int bulkConnections;
+        /**
+         * bulk 连接单个请求的字节数,每次发送4个
+         */
+        @Param({"16384"})
+        public int bulkMessageSize;
+
+        EchoServer server;
+        private final List<Thread> pumps = new ArrayList<>();
+        private final AtomicLong bulkBytes = new AtomicLong();
+        private long iterationStart;
+        private volatile boolean running = true;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            System.setProperty("org.smartboot.aio.channelByteBudget", String.valueOf(channelByteBudget));
+            System.setProperty("org.smartboot.aio.loopTimeBudget", String.valueOf(loopTimeBudget));
+            server = new EchoServer(Providers.ENHANCE, 1, 4096);
+            for (int i = 0; i < bulkConnections; i++) {
+                final BlockingClient client = new BlockingClient(server.getAddress(), bulkMessageSize, 4);
+                Thread pump = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            while (running) {
+                                bulkBytes.addAndGet(client.roundTrip());
+                            }
+                            client.close();
+                        } catch (IOException e) {
+                            if (running) {
+                                e.printStackTrace();
+                            }
+                        }
+                    }
+                }, "bulk-" + i);
+                pump.setDaemon(true);
+                pump.start();
+                pumps.add(pump);
+            }
+        }
+
+        @Setup(Level.Iteration)
+        public void startIteration() {
+            bulkBytes.set(0);
+            iterationStart = System.nanoTime();
+        }
+
+        @TearDown(Level.Iteration)
+        public void endIteration() {
+            double seconds = (System.nanoTime() - iterationStart) / 1e9;
+            System.out.printf("bulk MB/s: %.1f%n", bulkBytes.get() / seconds / (1024 * 1024));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException, InterruptedException {
+            running = false;
+            for (Thread pump : pumps) {
+                pump.join(1000);
+            }
+            server.close();
+            System.clearProperty("org.smartboot.aio.channelByteBudget");
+            System.clearProperty("org.smartboot.aio.loopTimeBudget");
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ClientState {
+        BlockingClient client;
+
+        @Setup(Level.Trial)
+        public void setup(BudgetServerState serverState) throws IOException {
+            client = new BlockingClient(serverState.server.getAddress(), 64, 1);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            client.close();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.smartboot.aio.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 万级连接的环回回显压测，对比 org.smartboot.aio.optimizeSelectedKeys 开启前后服务端每秒处理的事件数。
+ * 结果以单个连接的一次回显为一次操作，需保证 ulimit -n 大于 2 倍连接数
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-XX:+IgnoreUnrecognizedVMOptions", "--add-opens=java.base/sun.nio.ch=ALL-UNNAMED"})
+public class SelectedKeysBenchmark {
+    private static final int CONNECTIONS = 10000;
+
+    @Benchmark
+    @OperationsPerInvocation(CONNECTIONS)
+    public int echo(SelectedKeysState state) throws IOException {
+        return state.client.round();
+    }
+
+    @State(Scope.Benchmark)
+    public static class SelectedKeysState {
+        @Param({"false", "true"})
+        public boolean optimizeSelectedKeys;
+        @Param({"4"})
+        public int serverThreads;
+
+        EchoServer server;
+        MultiplexClient client;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            System.setProperty("org.smartboot.aio.optimizeSelectedKeys", String.valueOf(optimizeSelectedKeys));
+            server = new EchoServer(Providers.ENHANCE, serverThreads, 64);
+            client = new MultiplexClient(server.getAddress(), CONNECTIONS, 16);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            client.close();
+            server.close();
+            System.clearProperty("org.smartboot.aio.optimizeSelectedKeys");
+        }
+    }
+}
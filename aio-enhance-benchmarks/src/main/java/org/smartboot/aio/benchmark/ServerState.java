@@ -0,0 +1,42 @@
+package org.smartboot.aio.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+
+/**
+ * 所有压测线程共享的回显服务
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+@State(Scope.Benchmark)
+public class ServerState {
+    /**
+     * 被测的 AsynchronousChannelProvider
+     */
+    @Param({Providers.ENHANCE, Providers.JDK})
+    public String provider;
+    /**
+     * 服务端 IO 线程数
+     */
+    @Param({"4"})
+    public int serverThreads;
+
+    EchoServer server;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        server = new EchoServer(provider, serverThreads, 4096);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        server.close();
+    }
+}
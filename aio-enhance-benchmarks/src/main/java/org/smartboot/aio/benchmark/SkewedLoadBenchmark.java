@@ -0,0 +1,130 @@
+package org.smartboot.aio.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 流量倾斜场景下的 Worker 分配策略压测：每 serverThreads 条连接中有一条持续以 pipeline 方式满载收发，
+ * 轮询分配会使这些重负载连接全部落在同一个读 Worker 上。压测线程各持有一条轻负载连接，观察其回显延迟的 p99，
+ * 并对比 org.smartboot.aio.rebalance 开启后热点连接被迁移的效果。
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Threads(4)
+@Fork(1)
+public class SkewedLoadBenchmark {
+
+    @Benchmark
+    public int echo(ClientState client) throws IOException {
+        return client.client.roundTrip();
+    }
+
+    @State(Scope.Benchmark)
+    public static class SkewedServerState {
+        @Param({"roundRobin", "leastConnections", "powerOfTwoChoices"})
+        public String workerSelector;
+        /**
+         * 是否启用读Worker负载均衡
+         */
+        @Param({"false", "true"})
+        public boolean rebalance;
+        @Param({"4"})
+        public int serverThreads;
+        /**
+         * 重负载连接数
+         */
+        @Param({"4"})
+        public int heavyConnections;
+
+        EchoServer server;
+        private final List<Thread> pumps = new ArrayList<>();
+        private final List<BlockingClient> idleClients = new ArrayList<>();
+        private volatile boolean running = true;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException, InterruptedException {
+            System.setProperty("org.smartboot.aio.workerSelector", workerSelector);
+            System.setProperty("org.smartboot.aio.rebalance", String.valueOf(rebalance));
+            server = new EchoServer(Providers.ENHANCE, serverThreads, 4096);
+            for (int i = 0; i < heavyConnections * serverThreads; i++) {
+                final BlockingClient client = new BlockingClient(server.getAddress(), 64, i % serverThreads == 0 ? 64 : 1);
+                if (i % serverThreads != 0) {
+                    client.roundTrip();
+                    idleClients.add(client);
+                    continue;
+                }
+                Thread pump = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            while (running) {
+                                client.roundTrip();
+                            }
+                            client.close();
+                        } catch (IOException e) {
+                            if (running) {
+                                e.printStackTrace();
+                            }
+                        }
+                    }
+                }, "heavy-" + i);
+                pump.setDaemon(true);
+                pump.start();
+                pumps.add(pump);
+                //等待负载被服务端采样
+                Thread.sleep(300);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException, InterruptedException {
+            running = false;
+            for (Thread pump : pumps) {
+                pump.join(1000);
+            }
+            for (BlockingClient client : idleClients) {
+                client.close();
+            }
+            server.close();
+            System.clearProperty("org.smartboot.aio.workerSelector");
+            System.clearProperty("org.smartboot.aio.rebalance");
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ClientState {
+        BlockingClient client;
+
+        @Setup(Level.Trial)
+        public void setup(SkewedServerState serverState) throws IOException {
+            client = new BlockingClient(serverState.server.getAddress(), 64, 1);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            client.close();
+        }
+    }
+}
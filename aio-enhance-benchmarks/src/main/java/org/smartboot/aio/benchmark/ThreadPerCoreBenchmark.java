@@ -0,0 +1,82 @@
+package org.smartboot.aio.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 线程模型压测：对比读写分属两个线程组（默认）与 org.smartboot.aio.threadPerCore 下单个 Worker 同时处理连接读写的吞吐量及延迟。
+ * depth=1 对应逐个请求应答，depth=16 对应 TFB plaintext 的 pipeline 场景
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Threads(4)
+@Fork(1)
+public class ThreadPerCoreBenchmark {
+
+    @Benchmark
+    public int echo(ClientState client) throws IOException {
+        return client.client.roundTrip();
+    }
+
+    @State(Scope.Benchmark)
+    public static class ThreadModelState {
+        @Param({"false", "true"})
+        public boolean threadPerCore;
+        @Param({"4"})
+        public int serverThreads;
+
+        EchoServer server;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            System.setProperty("org.smartboot.aio.threadPerCore", String.valueOf(threadPerCore));
+            server = new EchoServer(Providers.ENHANCE, serverThreads, 4096);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            server.close();
+            System.clearProperty("org.smartboot.aio.threadPerCore");
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ClientState {
+        @Param({"64"})
+        public int messageSize;
+        @Param({"1", "16"})
+        public int depth;
+
+        BlockingClient client;
+
+        @Setup(Level.Trial)
+        public void setup(ThreadModelState serverState) throws IOException {
+            client = new BlockingClient(serverState.server.getAddress(), messageSize, depth);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            client.close();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.smartboot.aio.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 写队列压测：pipeline 请求逐个响应，对比应用层排队逐个 write 与 org.smartboot.aio.writeQueue 合并输出。
+ * flushConsolidation 仅在 writeQueue=true 时生效，Worker 单轮循环内暂存的响应于本轮结束时统一 flush。
+ * 系统调用次数可通过 -prof perfnorm 或 strace -c -f 观察。
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class WriteQueueBenchmark {
+
+    @Benchmark
+    public int pipeline(ClientState client) throws IOException {
+        return client.client.roundTrip();
+    }
+
+    @State(Scope.Benchmark)
+    public static class WriteQueueServerState {
+        @Param({"false", "true"})
+        public boolean writeQueue;
+        @Param({"false", "true"})
+        public boolean flushConsolidation;
+        @Param({"64"})
+        public int messageSize;
+
+        PipelineServer server;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            System.setProperty("org.smartboot.aio.writeQueue", String.valueOf(writeQueue));
+            System.setProperty("org.smartboot.aio.flushConsolidation", String.valueOf(flushConsolidation));
+            server = new PipelineServer(Providers.ENHANCE, 4, messageSize, writeQueue);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            server.close();
+            System.clearProperty("org.smartboot.aio.writeQueue");
+            System.clearProperty("org.smartboot.aio.flushConsolidation");
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ClientState {
+        @Param({"16", "128"})
+        public int depth;
+
+        BlockingClient client;
+
+        @Setup(Level.Trial)
+        public void setup(WriteQueueServerState serverState) throws IOException {
+            client = new BlockingClient(serverState.server.getAddress(), serverState.messageSize, depth);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            client.close();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.smartboot.aio;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Worker级的堆外内存池,按需申请整块内存(slab)并切分为等长的buffer。
+ * 仅在连接可读时借出,读回调处理完毕后归还,内存占用与活跃连接数而非连接总数相关。
+ * 借出与归还均以池对象自身作为锁,归还可由任意线程执行;仅接受本池借出且尚未归还的buffer
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+final class BufferPool {
+    /**
+     * 每块slab切分出的buffer数
+     */
+    private static final int SLAB_CHUNKS = 64;
+    private final int chunkSize;
+    private ByteBuffer[] free = new ByteBuffer[SLAB_CHUNKS];
+    private int size;
+    /**
+     * 已借出的buffer。ByteBuffer的equals比较内容,故以对象标识区分
+     */
+    private final Set<ByteBuffer> leased = Collections.newSetFromMap(new IdentityHashMap<ByteBuffer, Boolean>());
+
+    BufferPool(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * 借出一个已清空的buffer,池中无可用buffer时申请新的slab
+     */
+    synchronized ByteBuffer lease() {
+        if (size == 0) {
+            allocateSlab();
+        }
+        ByteBuffer buffer = free[--size];
+        free[size] = null;
+        leased.add(buffer);
+        return buffer;
+    }
+
+    /**
+     * 归还buffer
+     *
+     * @return 非本池借出或已归还的buffer返回false,不予回收
+     */
+    synchronized boolean release(ByteBuffer buffer) {
+        if (!leased.remove(buffer)) {
+            return false;
+        }
+        if (size == free.length) {
+            ByteBuffer[] newFree = new ByteBuffer[size << 1];
+            System.arraycopy(free, 0, newFree, 0, size);
+            free = newFree;
+        }
+        buffer.clear();
+        free[size++] = buffer;
+        return true;
+    }
+
+    private void allocateSlab() {
+        ByteBuffer slab = ByteBuffer.allocateDirect(chunkSize * SLAB_CHUNKS);
+        for (int i = 0; i < SLAB_CHUNKS; i++) {
+            slab.limit((i + 1) * chunkSize).position(i * chunkSize);
+            free[size++] = slab.slice();
+        }
+    }
+}
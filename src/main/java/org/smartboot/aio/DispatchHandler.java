@@ -0,0 +1,68 @@
+package org.smartboot.aio;
+
+import java.nio.channels.CompletionHandler;
+
+/**
+ * 将回调转交至连接级串行执行器,使回调不在Worker线程中执行。
+ * 同一时刻仅服务于一个读或写操作,回调执行前即释放,可供下一次操作复用
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+final class DispatchHandler<V> implements CompletionHandler<V, Object>, Runnable {
+    private final SerialExecutor executor;
+    private CompletionHandler<V, Object> handler;
+    private V result;
+    private Throwable exception;
+    private Object attachment;
+    /**
+     * 是否已绑定至某一操作且尚未执行回调
+     */
+    private volatile boolean bound;
+
+    DispatchHandler(SerialExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * 获取可用的DispatchHandler,无缓存对象或缓存对象仍被占用时重新分配
+     */
+    static <V> DispatchHandler<V> bind(DispatchHandler<V> cached, SerialExecutor executor, CompletionHandler<V, Object> handler) {
+        DispatchHandler<V> dispatchHandler = cached == null || cached.bound ? new DispatchHandler<V>(executor) : cached;
+        dispatchHandler.handler = handler;
+        dispatchHandler.bound = true;
+        return dispatchHandler;
+    }
+
+    @Override
+    public void completed(V result, Object attachment) {
+        this.result = result;
+        this.attachment = attachment;
+        executor.execute(this);
+    }
+
+    @Override
+    public void failed(Throwable exc, Object attachment) {
+        this.exception = exc;
+        this.attachment = attachment;
+        executor.execute(this);
+    }
+
+    @Override
+    public void run() {
+        CompletionHandler<V, Object> handler = this.handler;
+        V result = this.result;
+        Throwable exception = this.exception;
+        Object attachment = this.attachment;
+        this.handler = null;
+        this.result = null;
+        this.exception = null;
+        this.attachment = null;
+        bound = false;
+        if (exception != null) {
+            handler.failed(exception, attachment);
+        } else {
+            handler.completed(result, attachment);
+        }
+    }
+}
@@ -1,21 +1,34 @@
 package org.smartboot.aio;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
 import java.nio.channels.AsynchronousChannelGroup;
+import java.nio.channels.CancelledKeyException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.spi.AsynchronousChannelProvider;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
 
 /**
  * @author 三刀
@@ -23,23 +36,181 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 class EnhanceAsynchronousChannelGroup extends AsynchronousChannelGroup {
     /**
-     * 递归回调次数上限
+     * 单轮循环处理的注册事件上限,避免连接风暴时已就绪的读写事件长时间得不到处理
      */
-    public static final int MAX_INVOKER = 8;
+    private static final int MAX_REGISTER_BATCH = 256;
+    /**
+     * busy-poll退避:前若干次空轮询持续自旋,随后若干次让出CPU,此后以倍增的时长park直至上限
+     */
+    private static final int BUSY_POLL_SPINS = 100;
+    private static final int BUSY_POLL_YIELDS = 10;
+    private static final long BUSY_POLL_MAX_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(64);
     /**
      * 写线程数
      */
     private static final String WRITE_THREAD_NUM = "org.smartboot.aio.writeThreadNum";
     /**
-     * accept线程数,该线程数只可少于等于进程内启用的服务端个数，多出无效
+     * accept线程数,该线程数只可少于等于进程内启用的服务端个数，多出无效;启用 org.smartboot.aio.shardedAccept 时每个服务端占用全部accept线程
      */
     private static final String ACCEPT_THREAD_NUM = "org.smartboot.aio.acceptThreadNum";
     /**
-     * 读回调处理线程池,可用于业务处理
+     * 服务端以SO_REUSEPORT在同一地址上为每个accept线程监听一个分片,由内核分摊新建连接,accept吞吐随accept线程数扩展。
+     * 各分片独立回调accept结果,Future方式的accept由首个完成的分片交付,其余分片接入的连接留待后续accept;当前JDK或操作系统不支持SO_REUSEPORT时退化为单一监听
+     */
+    private static final String SHARDED_ACCEPT = "org.smartboot.aio.shardedAccept";
+    /**
+     * 单次可接入事件中最多接入的连接数。大于1时在同一循环中依次接入backlog内的连接并回调,
+     * 回调中再次发起的accept不再递归执行,连接风暴下接入事件无需反复注册;默认为1,即每次accept仅接入一个连接。
+     * 每接入一个连接消耗一次 org.smartboot.aio.channelEventBudget 预算,预算耗尽时保留接入事件,由下一轮循环继续接入
+     */
+    private static final String ACCEPT_BATCH = "org.smartboot.aio.acceptBatch";
+    /**
+     * 每个连接仅注册于一个Worker的Selector,由该Worker同时处理读、写及connect事件,不再创建写线程组。
+     * 同一连接只占用一个SelectionKey,在Worker线程中发起的写操作无需跨线程修改关注事件及wakeup;该模式下不支持负载均衡迁移
+     */
+    private static final String THREAD_PER_CORE = "org.smartboot.aio.threadPerCore";
+    /**
+     * 以数组替换Selector内部的selectedKeys集合,JDK9及以上需配合 --add-opens java.base/sun.nio.ch=ALL-UNNAMED
+     */
+    private static final String OPTIMIZE_SELECTED_KEYS = "org.smartboot.aio.optimizeSelectedKeys";
+    /**
+     * 启用Worker运行指标采集,并注册至JMX
+     */
+    private static final String METRICS = "org.smartboot.aio.metrics";
+    /**
+     * 指标开关在类加载时确定,关闭时相关分支可被JIT完全消除
+     */
+    static final boolean METRICS_ENABLED = Boolean.getBoolean(METRICS);
+    /**
+     * 启用读写延迟直方图
+     */
+    private static final String LATENCY = "org.smartboot.aio.latency";
+    /**
+     * 定期接收延迟直方图区间快照的LatencyListener实现类,未指定时不启动定期回调,可通过latency()主动获取
+     */
+    private static final String LATENCY_LISTENER = "org.smartboot.aio.latencyListener";
+    /**
+     * 延迟直方图的回调周期,单位秒,默认10秒
+     */
+    private static final String LATENCY_INTERVAL = "org.smartboot.aio.latencyInterval";
+    static final boolean LATENCY_ENABLED = Boolean.getBoolean(LATENCY);
+    /**
+     * group编号,用于区分JMX中不同group的Worker
+     */
+    private static final AtomicInteger GROUP_INDEX = new AtomicInteger(0);
+    /**
+     * 读写Worker的分配策略:roundRobin(默认)、leastConnections、powerOfTwoChoices
+     */
+    private static final String WORKER_SELECTOR = "org.smartboot.aio.workerSelector";
+    /**
+     * 轮询分配
+     */
+    private static final int ROUND_ROBIN = 0;
+    /**
+     * 分配至连接数最少的Worker
+     */
+    private static final int LEAST_CONNECTIONS = 1;
+    /**
+     * 随机选取两个Worker,分配至近期事件数较少的一方
+     */
+    private static final int POWER_OF_TWO_CHOICES = 2;
+    /**
+     * 启用读Worker负载均衡,将过热Worker上的连接迁移至较空闲的Worker
+     */
+    private static final String REBALANCE = "org.smartboot.aio.rebalance";
+    /**
+     * 采样周期内事件数低于该值的Worker不触发迁移
+     */
+    private static final long REBALANCE_MIN_EVENTS = 1000;
+    /**
+     * 负载采样周期
+     */
+    private static final long LOAD_SAMPLE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    /**
+     * 调用方指定的Worker亲和性,优先于分配策略
+     */
+    static final ThreadLocal<Integer> WORKER_AFFINITY = new ThreadLocal<>();
+    /**
+     * readOnReady模式下由Worker内存池借出的buffer大小
+     */
+    private static final String POOLED_BUFFER_SIZE = "org.smartboot.aio.pooledBufferSize";
+    /**
+     * 读写回调的执行方式:inline(默认)于Worker线程中直接回调;virtual(JDK21+)转交至虚拟线程执行;
+     * executor转交至有界业务线程池执行。转交后同一连接的回调保持顺序
+     */
+    private static final String HANDLER_DISPATCH = "org.smartboot.aio.handlerDispatch";
+    /**
+     * executor模式下业务线程池的线程数,默认为CPU核数
+     */
+    private static final String HANDLER_THREADS = "org.smartboot.aio.handlerThreads";
+    /**
+     * executor模式下业务线程池的队列长度。队列中的元素为存在待执行回调的连接,队列已满时由Worker线程直接执行回调,形成背压
+     */
+    private static final String HANDLER_QUEUE_SIZE = "org.smartboot.aio.handlerQueueSize";
+    /**
+     * writeMapped模式下单个映射窗口的大小
+     */
+    private static final String MAPPED_WINDOW_SIZE = "org.smartboot.aio.mappedWindowSize";
+    /**
+     * 读写超时时间轮的刻度(毫秒)。存在待触发的超时任务时Worker的select以此为超时时长,刻度越小超时触发越及时,空闲时的唤醒也越频繁
+     */
+    private static final String TIMER_TICK = "org.smartboot.aio.timerTick";
+    /**
+     * 启用连接级写队列,存在未完成的写操作时允许继续write,并合并为一次gathering write输出。
+     * 此时write不再抛出WritePendingException,请求按提交顺序输出并各自回调;
+     * 已入队的请求无法撤回:指定超时的write抛出UnsupportedOperationException,Future.cancel不影响数据的输出
+     */
+    private static final String WRITE_QUEUE = "org.smartboot.aio.writeQueue";
+    /**
+     * 启用写队列时,Worker线程在单轮循环中提交的写请求暂不输出,待本轮全部就绪事件处理完毕后逐个连接统一flush,
+     * 使多个pipeline响应合并为一次系统调用
+     */
+    private static final String FLUSH_CONSOLIDATION = "org.smartboot.aio.flushConsolidation";
+    /**
+     * 暂存写请求的最长等待时间(微秒),超出后不再等待本轮循环结束
+     */
+    private static final String FLUSH_MAX_DELAY = "org.smartboot.aio.flushMaxDelay";
+    /**
+     * 单个连接暂存的字节数达到该值时立即flush
+     */
+    private static final String FLUSH_THRESHOLD = "org.smartboot.aio.flushThreshold";
+    /**
+     * 读操作完成后保留读事件,仅当读事件触发时不存在进行中的读操作才移除,
+     * 避免每次读操作前后各修改一次关注事件(epoll_ctl)
+     */
+    private static final String LAZY_READ_INTEREST = "org.smartboot.aio.lazyReadInterest";
+    /**
+     * 单个连接在一次就绪事件中可执行的读、写、accept次数(含就绪事件触发的首次操作),
+     * 超出后后续操作交由Selector在下一轮循环中处理,使同一轮的其余连接得以先行处理。默认为8
+     */
+    private static final String CHANNEL_EVENT_BUDGET = "org.smartboot.aio.channelEventBudget";
+    /**
+     * 单个连接在一次就绪事件中可读写的字节数,0为不限(默认)。就绪事件触发的首次操作不受限
+     */
+    private static final String CHANNEL_BYTE_BUDGET = "org.smartboot.aio.channelByteBudget";
+    /**
+     * 单个连接在一次就绪事件中的处理时长(微秒),0为不限(默认)
+     */
+    private static final String CHANNEL_TIME_BUDGET = "org.smartboot.aio.channelTimeBudget";
+    /**
+     * Worker单轮循环的事件、字节及时长(微秒)预算,0为不限(默认)。
+     * 设置后每个连接的预算取单连接预算与本轮剩余预算在待处理连接间均分后的较小值,
+     * 就绪连接越多、已耗用越多,单个连接可连续处理的次数越少,但每个就绪连接至少处理一次
+     */
+    private static final String LOOP_EVENT_BUDGET = "org.smartboot.aio.loopEventBudget";
+    private static final String LOOP_BYTE_BUDGET = "org.smartboot.aio.loopByteBudget";
+    private static final String LOOP_TIME_BUDGET = "org.smartboot.aio.loopTimeBudget";
+    /**
+     * 读Worker(threadPerCore模式下为io Worker)在阻塞select之前以selectNow轮询就绪事件及注册队列的时长(微秒),0为不启用(默认)。
+     * 轮询期间其他线程无需wakeup,省去park/unpark及wakeup的开销,代价为空闲时占用CPU,适用于延迟敏感且CPU充足的场景
+     */
+    private static final String BUSY_POLL = "org.smartboot.aio.busyPoll";
+    /**
+     * 读Worker的运行线程池,不承载业务处理。业务处理可通过 org.smartboot.aio.handlerDispatch 转交至独立线程池
      */
     private final ExecutorService readExecutorService;
     /**
-     * 写回调线程池
+     * 写回调线程池,threadPerCore模式下为null
      */
     private final ExecutorService writeExecutorService;
     /**
@@ -55,14 +226,14 @@ class EnhanceAsynchronousChannelGroup extends AsynchronousChannelGroup {
      */
     private final AtomicInteger readIndex = new AtomicInteger(0);
     private final AtomicInteger writeIndex = new AtomicInteger(0);
-    /**
-     * 定时任务线程池
-     */
-    private final ScheduledThreadPoolExecutor scheduledExecutor;
     /**
      * 服务端accept线程池
      */
     private ExecutorService acceptExecutorService;
+    /**
+     * 映射窗口预取线程池,首次使用writeMapped时创建
+     */
+    private ExecutorService prefetchExecutorService;
     /**
      * accept工作组
      */
@@ -70,7 +241,67 @@ class EnhanceAsynchronousChannelGroup extends AsynchronousChannelGroup {
     /**
      * group运行状态
      */
-    private boolean running = true;
+    private volatile boolean running = true;
+    /**
+     * 是否启用写队列
+     */
+    private final boolean writeQueueEnabled = getBooleanSystemProperty(WRITE_QUEUE, false);
+    /**
+     * 是否合并flush,仅在启用写队列时生效
+     */
+    private final boolean flushConsolidation = writeQueueEnabled && getBooleanSystemProperty(FLUSH_CONSOLIDATION, false);
+    private final long flushMaxDelayNanos = TimeUnit.MICROSECONDS.toNanos(getIntSystemProperty(FLUSH_MAX_DELAY, 200));
+    private final int flushThreshold = getIntSystemProperty(FLUSH_THRESHOLD, 64 * 1024);
+    private final boolean lazyReadInterest = getBooleanSystemProperty(LAZY_READ_INTEREST, false);
+    /**
+     * 调度预算,字节及时长以0表示不限
+     */
+    private final int channelEventBudget = Math.max(1, getIntSystemProperty(CHANNEL_EVENT_BUDGET, 8));
+    private final long channelByteBudget = getIntSystemProperty(CHANNEL_BYTE_BUDGET, 0);
+    private final long channelTimeBudget = TimeUnit.MICROSECONDS.toNanos(getIntSystemProperty(CHANNEL_TIME_BUDGET, 0));
+    private final int loopEventBudget = getIntSystemProperty(LOOP_EVENT_BUDGET, 0);
+    private final long loopByteBudget = getIntSystemProperty(LOOP_BYTE_BUDGET, 0);
+    private final long loopTimeBudget = TimeUnit.MICROSECONDS.toNanos(getIntSystemProperty(LOOP_TIME_BUDGET, 0));
+    /**
+     * 是否启用时长预算,关闭时无需读取时钟
+     */
+    private final boolean timeBudget = channelTimeBudget > 0 || loopTimeBudget > 0;
+    private final long busyPollNanos = TimeUnit.MICROSECONDS.toNanos(getIntSystemProperty(BUSY_POLL, 0));
+    private final boolean shardedAccept = getBooleanSystemProperty(SHARDED_ACCEPT, false);
+    private final int acceptBatch = getIntSystemProperty(ACCEPT_BATCH, 1);
+    /**
+     * 是否优化selectedKeys
+     */
+    private final boolean optimizeSelectedKeys = getBooleanSystemProperty(OPTIMIZE_SELECTED_KEYS, false);
+    /**
+     * Worker分配策略
+     */
+    private final int workerSelector = getWorkerSelector();
+    /**
+     * 是否启用负载均衡
+     */
+    private final boolean rebalanceEnabled = getBooleanSystemProperty(REBALANCE, false);
+    private final boolean threadPerCore = getBooleanSystemProperty(THREAD_PER_CORE, false);
+    /**
+     * 是否需要采样Worker负载
+     */
+    private final boolean loadSampling = rebalanceEnabled || workerSelector == POWER_OF_TWO_CHOICES;
+    private final int groupIndex = GROUP_INDEX.getAndIncrement();
+    private final int pooledBufferSize = getIntSystemProperty(POOLED_BUFFER_SIZE, 4096);
+    private final int mappedWindowSize = getIntSystemProperty(MAPPED_WINDOW_SIZE, 4 * 1024 * 1024);
+    private final long timerTickMillis = Math.max(1, getIntSystemProperty(TIMER_TICK, 10));
+    /**
+     * 回调执行线程池,为null时于Worker线程中直接回调
+     */
+    private final ExecutorService handlerExecutorService = loadHandlerExecutor();
+    /**
+     * 已注册至JMX的Worker指标
+     */
+    private final List<ObjectName> metricsNames = new ArrayList<>();
+    /**
+     * 延迟直方图的定期回调线程,关闭group时中断
+     */
+    private Thread latencyReporter;
 
     /**
      * Initialize a new instance of this class.
@@ -79,28 +310,43 @@ class EnhanceAsynchronousChannelGroup extends AsynchronousChannelGroup {
      */
     protected EnhanceAsynchronousChannelGroup(AsynchronousChannelProvider provider, ExecutorService readExecutorService, int threadNum) throws IOException {
         super(provider);
+        final int acceptThreadNum = getIntSystemProperty(ACCEPT_THREAD_NUM, 1);
         //init threadPool for read
         this.readExecutorService = readExecutorService;
         this.readWorkers = new Worker[threadNum];
+        int readSelectionKey = SelectionKey.OP_READ;
+        if (threadPerCore) {
+            readSelectionKey |= SelectionKey.OP_WRITE | SelectionKey.OP_CONNECT;
+            //accept 复用读写线程组
+            if (acceptThreadNum <= 0) {
+                readSelectionKey |= SelectionKey.OP_ACCEPT;
+                acceptWorkers = readWorkers;
+            }
+        }
         for (int i = 0; i < threadNum; i++) {
-            readWorkers[i] = new Worker(Selector.open(), SelectionKey.OP_READ);
+            readWorkers[i] = new Worker(Selector.open(), readSelectionKey, (threadPerCore ? "io-" : "read-") + i);
             this.readExecutorService.execute(readWorkers[i]);
         }
 
-        //init threadPool for write and connect
-        final int writeThreadNum = getIntSystemProperty(WRITE_THREAD_NUM, Runtime.getRuntime().availableProcessors() > 1 ? Runtime.getRuntime().availableProcessors() >> 1 : 1);
-        final int acceptThreadNum = getIntSystemProperty(ACCEPT_THREAD_NUM, 1);
-        writeExecutorService = getThreadPoolExecutor("smart-socket:write-", writeThreadNum);
-        this.writeWorkers = new Worker[writeThreadNum];
-        int validSelectionKey = SelectionKey.OP_WRITE | SelectionKey.OP_CONNECT;
-        //accept 复用 write线程组
-        if (acceptThreadNum <= 0) {
-            validSelectionKey |= SelectionKey.OP_ACCEPT;
-            acceptWorkers = writeWorkers;
-        }
-        for (int i = 0; i < writeThreadNum; i++) {
-            writeWorkers[i] = new Worker(Selector.open(), validSelectionKey);
-            writeExecutorService.execute(writeWorkers[i]);
+        if (threadPerCore) {
+            //读写由同一线程组承担
+            writeExecutorService = null;
+            writeWorkers = readWorkers;
+        } else {
+            //init threadPool for write and connect
+            final int writeThreadNum = getIntSystemProperty(WRITE_THREAD_NUM, Runtime.getRuntime().availableProcessors() > 1 ? Runtime.getRuntime().availableProcessors() >> 1 : 1);
+            writeExecutorService = getThreadPoolExecutor("smart-socket:write-", writeThreadNum);
+            this.writeWorkers = new Worker[writeThreadNum];
+            int validSelectionKey = SelectionKey.OP_WRITE | SelectionKey.OP_CONNECT;
+            //accept 复用 write线程组
+            if (acceptThreadNum <= 0) {
+                validSelectionKey |= SelectionKey.OP_ACCEPT;
+                acceptWorkers = writeWorkers;
+            }
+            for (int i = 0; i < writeThreadNum; i++) {
+                writeWorkers[i] = new Worker(Selector.open(), validSelectionKey, "write-" + i);
+                writeExecutorService.execute(writeWorkers[i]);
+            }
         }
 
         //init threadPool for accept
@@ -108,22 +354,161 @@ class EnhanceAsynchronousChannelGroup extends AsynchronousChannelGroup {
             acceptExecutorService = getThreadPoolExecutor("smart-socket:accept-", acceptThreadNum);
             acceptWorkers = new Worker[acceptThreadNum];
             for (int i = 0; i < acceptThreadNum; i++) {
-                acceptWorkers[i] = new Worker(Selector.open(), SelectionKey.OP_ACCEPT);
+                acceptWorkers[i] = new Worker(Selector.open(), SelectionKey.OP_ACCEPT, "accept-" + i);
                 acceptExecutorService.execute(acceptWorkers[i]);
             }
         }
+        try {
+            if (METRICS_ENABLED) {
+                registerMetrics();
+            }
+            if (LATENCY_ENABLED) {
+                startLatencyReporter();
+            }
+        } catch (IOException e) {
+            shutdownNow();
+            throw e;
+        }
+    }
 
-        scheduledExecutor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+    /**
+     * 定期将延迟直方图的区间快照回调至LatencyListener
+     */
+    private void startLatencyReporter() throws IOException {
+        String className = System.getProperty(LATENCY_LISTENER);
+        if (className == null || className.length() == 0) {
+            return;
+        }
+        final LatencyListener listener;
+        try {
+            listener = (LatencyListener) Class.forName(className).getDeclaredConstructor().newInstance();
+        } catch (Exception e) {
+            throw new IOException("load latency listener fail: " + className, e);
+        }
+        final int interval = Math.max(1, getIntSystemProperty(LATENCY_INTERVAL, 10));
+        latencyReporter = new Thread(new Runnable() {
             @Override
-            public Thread newThread(Runnable r) {
-                return new Thread(r, "smart-socket:scheduled");
+            public void run() {
+                while (running) {
+                    try {
+                        Thread.sleep(TimeUnit.SECONDS.toMillis(interval));
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    List<LatencySnapshot> snapshots = new ArrayList<>();
+                    for (LatencySnapshot snapshot : latency()) {
+                        if (snapshot.getCount() > 0) {
+                            snapshots.add(snapshot);
+                        }
+                    }
+                    listener.onSnapshot(snapshots);
+                }
             }
-        });
+        }, "smart-socket:latency-" + groupIndex);
+        latencyReporter.setDaemon(true);
+        latencyReporter.start();
+    }
+
+    /**
+     * 获取全部Worker自上一次调用以来的延迟直方图快照,未启用时返回空集合
+     */
+    public List<LatencySnapshot> latency() {
+        List<LatencySnapshot> snapshots = new ArrayList<>();
+        if (LATENCY_ENABLED) {
+            for (Worker worker : workers()) {
+                if (worker.readinessLatency != null) {
+                    snapshots.add(worker.readinessLatency.intervalSnapshot());
+                    snapshots.add(worker.handlerLatency.intervalSnapshot());
+                }
+                if (worker.writeLatency != null) {
+                    snapshots.add(worker.writeLatency.intervalSnapshot());
+                }
+            }
+        }
+        return snapshots;
+    }
+
+    /**
+     * 将各Worker的运行指标注册至JMX,注册失败时由调用方关闭group,已注册的指标随之注销
+     */
+    private void registerMetrics() throws IOException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (Worker worker : workers()) {
+            ObjectName name = null;
+            try {
+                name = new ObjectName("org.smartboot.aio:type=Worker,group=" + groupIndex + ",name=" + worker.metrics.getName());
+                server.registerMBean(new StandardMBean(worker.metrics, WorkerMetricsMBean.class), name);
+            } catch (JMException e) {
+                throw new IOException("register metrics fail: " + name, e);
+            }
+            metricsNames.add(name);
+        }
+    }
+
+    /**
+     * 注销全部已注册的指标,注销失败时在处理完其余指标后抛出
+     */
+    private void unregisterMetrics() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        JMException exception = null;
+        synchronized (metricsNames) {
+            for (ObjectName name : metricsNames) {
+                try {
+                    server.unregisterMBean(name);
+                } catch (InstanceNotFoundException ignored) {
+                    //已被外部注销
+                } catch (JMException e) {
+                    exception = e;
+                }
+            }
+            metricsNames.clear();
+        }
+        if (exception != null) {
+            throw new IllegalStateException("unregister metrics fail", exception);
+        }
+    }
+
+    /**
+     * 获取全部Worker的运行指标快照,未启用指标采集时返回空集合
+     */
+    public List<WorkerMetricsMBean> metrics() {
+        List<WorkerMetricsMBean> snapshots = new ArrayList<>();
+        if (METRICS_ENABLED) {
+            for (Worker worker : workers()) {
+                snapshots.add(worker.metrics.snapshot());
+            }
+        }
+        return snapshots;
+    }
+
+    /**
+     * 全部Worker,accept或写复用其他线程组时不重复计入
+     */
+    private List<Worker> workers() {
+        List<Worker> workers = new ArrayList<>();
+        for (Worker worker : readWorkers) {
+            workers.add(worker);
+        }
+        if (writeWorkers != readWorkers) {
+            for (Worker worker : writeWorkers) {
+                workers.add(worker);
+            }
+        }
+        if (acceptWorkers != writeWorkers && acceptWorkers != readWorkers) {
+            for (Worker worker : acceptWorkers) {
+                workers.add(worker);
+            }
+        }
+        return workers;
     }
 
     private ThreadPoolExecutor getThreadPoolExecutor(final String prefix, int threadNum) {
+        return getThreadPoolExecutor(prefix, threadNum, new LinkedBlockingQueue<Runnable>());
+    }
+
+    private ThreadPoolExecutor getThreadPoolExecutor(final String prefix, int threadNum, BlockingQueue<Runnable> queue) {
         return new ThreadPoolExecutor(threadNum, threadNum, 0L, TimeUnit.MILLISECONDS,
-                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                queue, new ThreadFactory() {
             private final AtomicInteger atomicInteger = new AtomicInteger(0);
 
             @Override
@@ -133,6 +518,25 @@ class EnhanceAsynchronousChannelGroup extends AsynchronousChannelGroup {
         });
     }
 
+    private int getWorkerSelector() {
+        String value = System.getProperty(WORKER_SELECTOR);
+        if ("leastConnections".equals(value)) {
+            return LEAST_CONNECTIONS;
+        }
+        if ("powerOfTwoChoices".equals(value)) {
+            return POWER_OF_TWO_CHOICES;
+        }
+        return ROUND_ROBIN;
+    }
+
+    private boolean getBooleanSystemProperty(String key, boolean defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null || value.length() == 0) {
+            return defaultValue;
+        }
+        return Boolean.parseBoolean(value);
+    }
+
     private int getIntSystemProperty(String key, int defaultValue) {
         String value = System.getProperty(key);
         if (value == null || value.length() == 0) {
@@ -154,25 +558,187 @@ class EnhanceAsynchronousChannelGroup extends AsynchronousChannelGroup {
      * @param opt          移除的事件
      */
     public void removeOps(SelectionKey selectionKey, int opt) {
-        if (selectionKey.isValid()) {
+        removeOps(null, selectionKey, opt);
+    }
+
+    /**
+     * 移除关注事件,未关注该事件时不做修改
+     *
+     * @param worker selectionKey所属的Worker,用于统计关注事件的修改次数
+     */
+    void removeOps(Worker worker, SelectionKey selectionKey, int opt) {
+        if (selectionKey.isValid() && (selectionKey.interestOps() & opt) != 0) {
             selectionKey.interestOps(selectionKey.interestOps() & ~opt);
+            if (METRICS_ENABLED && worker != null) {
+                worker.metrics.interestUpdates.increment();
+            }
+        }
+    }
+
+    int getMappedWindowSize() {
+        return mappedWindowSize;
+    }
+
+    synchronized ExecutorService prefetchExecutor() {
+        if (prefetchExecutorService == null) {
+            prefetchExecutorService = getThreadPoolExecutor("smart-socket:prefetch-", 1);
+        }
+        return prefetchExecutorService;
+    }
+
+    public boolean isWriteQueueEnabled() {
+        return writeQueueEnabled;
+    }
+
+    boolean isFlushConsolidation() {
+        return flushConsolidation;
+    }
+
+    int getFlushThreshold() {
+        return flushThreshold;
+    }
+
+    ExecutorService getHandlerExecutor() {
+        return handlerExecutorService;
+    }
+
+    private ExecutorService loadHandlerExecutor() {
+        String dispatch = System.getProperty(HANDLER_DISPATCH);
+        if ("executor".equals(dispatch)) {
+            int threadNum = getIntSystemProperty(HANDLER_THREADS, Runtime.getRuntime().availableProcessors());
+            int queueSize = getIntSystemProperty(HANDLER_QUEUE_SIZE, 4096);
+            //默认的AbortPolicy拒绝后由SerialExecutor在提交线程中执行
+            return getThreadPoolExecutor("smart-socket:handler-" + groupIndex + "-", threadNum, new ArrayBlockingQueue<Runnable>(queueSize));
+        }
+        if (!"virtual".equals(dispatch)) {
+            return null;
         }
+        ExecutorService executorService = VirtualThreads.newExecutor("smart-socket:handler-" + groupIndex + "-");
+        if (executorService == null) {
+            System.err.println("virtual threads require JDK 21+, completion handlers will be invoked inline");
+        }
+        return executorService;
     }
 
     public Worker getReadWorker() {
-        return readWorkers[index(readWorkers.length, readIndex)];
+        return selectWorker(readWorkers, readIndex);
     }
 
     public Worker getWriteWorker() {
-        return writeWorkers[index(writeWorkers.length, writeIndex)];
+        return selectWorker(writeWorkers, writeIndex);
+    }
+
+    /**
+     * 将buffer归还至借出它的读Worker内存池
+     *
+     * @return 各读Worker均未借出该buffer时返回false
+     */
+    boolean releasePooledBuffer(ByteBuffer buffer) {
+        for (Worker worker : readWorkers) {
+            if (worker.bufferPool != null && worker.bufferPool.release(buffer)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 由过热的读Worker在采样时调用:选取负载最低的读Worker,将一条不会使其成为新热点的连接标记为待迁移
+     */
+    private void rebalance(Worker worker) {
+        long load = worker.eventRate;
+        if (load < REBALANCE_MIN_EVENTS) {
+            return;
+        }
+        Worker coolest = worker;
+        for (Worker readWorker : readWorkers) {
+            if (readWorker.load() < coolest.load()) {
+                coolest = readWorker;
+            }
+        }
+        //负载差距不足一半时不迁移,避免连接在Worker间来回抖动
+        long gap = load - coolest.load();
+        if (coolest == worker || gap << 1 < load) {
+            return;
+        }
+        EnhanceAsynchronousSocketChannel candidate = null;
+        int candidateEvents = 0;
+        for (SelectionKey key : worker.selector.keys()) {
+            Object attachment = key.attachment();
+            if (!(attachment instanceof EnhanceAsynchronousSocketChannel)) {
+                continue;
+            }
+            EnhanceAsynchronousSocketChannel channel = (EnhanceAsynchronousSocketChannel) attachment;
+            int events = channel.sampleReadEvents();
+            if (events > candidateEvents && events < gap) {
+                candidate = channel;
+                candidateEvents = events;
+            }
+        }
+        if (candidate != null) {
+            candidate.migrateTo(coolest);
+        }
+    }
+
+    /**
+     * 按亲和性或分配策略选取Worker,并计入其连接数
+     */
+    private Worker selectWorker(Worker[] workers, AtomicInteger index) {
+        Worker worker;
+        Integer affinity = WORKER_AFFINITY.get();
+        if (affinity != null) {
+            worker = workers[(affinity & Integer.MAX_VALUE) % workers.length];
+        } else if (workers.length == 1) {
+            worker = workers[0];
+        } else if (workerSelector == LEAST_CONNECTIONS) {
+            worker = workers[0];
+            for (int i = 1; i < workers.length; i++) {
+                if (workers[i].channelCount.get() < worker.channelCount.get()) {
+                    worker = workers[i];
+                }
+            }
+        } else if (workerSelector == POWER_OF_TWO_CHOICES) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int i = random.nextInt(workers.length);
+            int j = random.nextInt(workers.length - 1);
+            Worker first = workers[i];
+            Worker second = workers[j >= i ? j + 1 : j];
+            long firstLoad = first.load();
+            long secondLoad = second.load();
+            if (firstLoad == secondLoad) {
+                worker = first.channelCount.get() <= second.channelCount.get() ? first : second;
+            } else {
+                worker = firstLoad < secondLoad ? first : second;
+            }
+        } else {
+            worker = workers[index(workers.length, index)];
+        }
+        worker.channelCount.incrementAndGet();
+        return worker;
     }
 
     public Worker getAcceptWorker() {
         return acceptWorkers[index(acceptWorkers.length, writeIndex)];
     }
 
-    public ScheduledThreadPoolExecutor getScheduledExecutor() {
-        return scheduledExecutor;
+    Worker[] getAcceptWorkers() {
+        return acceptWorkers;
+    }
+
+    boolean isShardedAccept() {
+        return shardedAccept;
+    }
+
+    int getAcceptBatch() {
+        return acceptBatch;
+    }
+
+    boolean isThreadPerCore() {
+        return threadPerCore;
+    }
+
+    boolean isLazyReadInterest() {
+        return lazyReadInterest;
     }
 
     /**
@@ -203,23 +769,53 @@ class EnhanceAsynchronousChannelGroup extends AsynchronousChannelGroup {
     @Override
     public void shutdown() {
         running = false;
+        if (latencyReporter != null) {
+            latencyReporter.interrupt();
+        }
         readExecutorService.shutdown();
-        writeExecutorService.shutdown();
+        if (writeExecutorService != null) {
+            writeExecutorService.shutdown();
+        }
         if (acceptExecutorService != null) {
             acceptExecutorService.shutdown();
         }
-        scheduledExecutor.shutdown();
+        synchronized (this) {
+            if (prefetchExecutorService != null) {
+                prefetchExecutorService.shutdown();
+            }
+        }
+        if (handlerExecutorService != null) {
+            handlerExecutorService.shutdown();
+        }
+        if (METRICS_ENABLED) {
+            unregisterMetrics();
+        }
     }
 
     @Override
     public void shutdownNow() {
         running = false;
+        if (latencyReporter != null) {
+            latencyReporter.interrupt();
+        }
         readExecutorService.shutdownNow();
-        writeExecutorService.shutdownNow();
+        if (writeExecutorService != null) {
+            writeExecutorService.shutdownNow();
+        }
         if (acceptExecutorService != null) {
             acceptExecutorService.shutdownNow();
         }
-        scheduledExecutor.shutdownNow();
+        synchronized (this) {
+            if (prefetchExecutorService != null) {
+                prefetchExecutorService.shutdownNow();
+            }
+        }
+        if (handlerExecutorService != null) {
+            handlerExecutorService.shutdownNow();
+        }
+        if (METRICS_ENABLED) {
+            unregisterMetrics();
+        }
     }
 
     @Override
@@ -235,6 +831,9 @@ class EnhanceAsynchronousChannelGroup extends AsynchronousChannelGroup {
             throw new RuntimeException();
         }
         selectionKey.interestOps(selectionKey.interestOps() | opt);
+        if (METRICS_ENABLED) {
+            worker.metrics.interestUpdates.increment();
+        }
         //Worker线程无需wakeup
         if (worker.getWorkerThread() == Thread.currentThread()) {
             return;
@@ -253,21 +852,209 @@ class EnhanceAsynchronousChannelGroup extends AsynchronousChannelGroup {
          * 当前Worker绑定的Selector
          */
         private final Selector selector;
-        private final AtomicInteger invoker = new AtomicInteger(0);
+        /**
+         * 数组实现的selectedKeys,未启用或替换失败时为null
+         */
+        private final SelectedSelectionKeySet optimizedKeys;
+        /**
+         * 当前连接在本次就绪事件中剩余的调度预算,仅由Worker线程访问
+         */
+        private int eventBudget;
+        private long byteBudget;
+        private long budgetDeadline;
+        /**
+         * 本轮循环剩余的调度预算
+         */
+        private int loopEvents;
+        private long loopBytes;
+        private long loopDeadline;
+        /**
+         * 当前操作由就绪事件直接触发,不受预算限制。仅在会申请预算的操作前置位,操作返回后即清除,
+         * 以免未申请预算的路径将该额度遗留给后续无关的操作
+         */
+        private boolean dispatched;
+        /**
+         * 分配至当前Worker且未关闭的连接数
+         */
+        final AtomicInteger channelCount = new AtomicInteger(0);
+        /**
+         * 已处理的事件数,仅由Worker线程访问
+         */
+        private long eventCount;
+        private long sampleEventCount;
+        private volatile long sampleTime = System.nanoTime();
+        /**
+         * 最近一个采样周期内处理的事件数
+         */
+        private volatile long eventRate;
+        /**
+         * readOnReady模式使用的内存池,仅读Worker存在,首次借出时才申请内存
+         */
+        final BufferPool bufferPool;
+        /**
+         * 运行指标,未启用时为null
+         */
+        final WorkerMetrics metrics;
+        /**
+         * 就绪事件至读回调的耗时,仅读Worker启用延迟直方图时存在
+         */
+        final LatencyRecorder readinessLatency;
+        /**
+         * 读回调的执行耗时
+         */
+        final LatencyRecorder handlerLatency;
+        /**
+         * 发起写操作至完成的耗时,仅写Worker启用延迟直方图时存在
+         */
+        final LatencyRecorder writeLatency;
+        /**
+         * 最近一次select返回的时间点,仅在启用延迟直方图时使用
+         */
+        private long selectTime;
+        /**
+         * 当前读操作由就绪事件触发,用于区分读操作的完成方式,仅在启用指标或延迟直方图时使用
+         */
+        private boolean readDispatched;
         private final AtomicBoolean wakeupAtomic = new AtomicBoolean(false);
+        /**
+         * 阻塞select之前的轮询时长,0为不轮询
+         */
+        private final long busyPollNanos;
         /**
          * 待注册的事件
          */
         private final ConcurrentLinkedQueue<WorkerRegister> registers = new ConcurrentLinkedQueue<>();
+        /**
+         * 读写超时时间轮
+         */
+        private final HashedWheelTimer timer = new HashedWheelTimer(timerTickMillis);
+        /**
+         * 本轮循环中暂存了写请求的连接,仅由Worker线程访问
+         */
+        private final List<EnhanceAsynchronousSocketChannel> stagedChannels = new ArrayList<>();
+        /**
+         * 首个连接暂存写请求的时间点
+         */
+        private long stagedTime;
+        /**
+         * Worker即将进入无超时的阻塞select
+         */
+        private volatile boolean timerIdle;
         private Thread workerThread;
 
-        Worker(Selector selector, int validSelectionKey) {
+        Worker(Selector selector, int validSelectionKey, String name) {
             this.selector = selector;
             this.validSelectionKey = validSelectionKey;
+            this.bufferPool = (validSelectionKey & SelectionKey.OP_READ) > 0 ? new BufferPool(pooledBufferSize) : null;
+            this.metrics = METRICS_ENABLED ? new WorkerMetrics(name, registers) : null;
+            boolean readLatency = LATENCY_ENABLED && (validSelectionKey & SelectionKey.OP_READ) > 0;
+            this.readinessLatency = readLatency ? new LatencyRecorder(name + ".readiness") : null;
+            this.handlerLatency = readLatency ? new LatencyRecorder(name + ".handler") : null;
+            this.writeLatency = LATENCY_ENABLED && (validSelectionKey & SelectionKey.OP_WRITE) > 0 ? new LatencyRecorder(name + ".write") : null;
+            this.optimizedKeys = optimizeSelectedKeys ? SelectedSelectionKeySet.replace(selector) : null;
+            this.busyPollNanos = (validSelectionKey & SelectionKey.OP_READ) > 0 ? EnhanceAsynchronousChannelGroup.this.busyPollNanos : 0;
         }
 
-        public AtomicInteger getInvoker() {
-            return invoker;
+        /**
+         * 申请一次调度预算,仅限Worker线程调用。预算耗尽时由调用方将操作交由Selector,待下一轮循环处理
+         *
+         * @return 是否可在当前线程中直接执行
+         */
+        boolean acquire() {
+            if (dispatched) {
+                dispatched = false;
+            } else if (eventBudget <= 0 || byteBudget <= 0 || (timeBudget && System.nanoTime() - budgetDeadline >= 0)) {
+                if (METRICS_ENABLED) {
+                    metrics.invokerCutoffs++;
+                }
+                return false;
+            }
+            eventBudget--;
+            loopEvents--;
+            return true;
+        }
+
+        /**
+         * 扣减已读写的字节数,仅限Worker线程调用
+         */
+        void consume(long bytes) {
+            byteBudget -= bytes;
+            loopBytes -= bytes;
+        }
+
+        /**
+         * 重置本轮循环的预算,并为注册事件、超时任务等非就绪事件触发的操作分配一份单连接预算
+         */
+        private void resetBudget() {
+            loopEvents = loopEventBudget;
+            loopBytes = loopByteBudget;
+            if (loopTimeBudget > 0) {
+                loopDeadline = System.nanoTime() + loopTimeBudget;
+            }
+            allot(1);
+        }
+
+        /**
+         * 为即将处理的连接分配预算:取单连接预算与本轮剩余预算在待处理连接间均分后的较小值
+         *
+         * @param pending 本轮尚未处理的就绪连接数,含当前连接
+         */
+        private void allot(int pending) {
+            dispatched = false;
+            eventBudget = loopEventBudget > 0 ? Math.min(channelEventBudget, Math.max(1, loopEvents / pending)) : channelEventBudget;
+            long bytes = channelByteBudget > 0 ? channelByteBudget : Long.MAX_VALUE;
+            byteBudget = loopByteBudget > 0 ? Math.min(bytes, Math.max(1, loopBytes / pending)) : bytes;
+            if (timeBudget) {
+                long now = System.nanoTime();
+                long nanos = channelTimeBudget > 0 ? channelTimeBudget : Long.MAX_VALUE;
+                if (loopTimeBudget > 0) {
+                    nanos = Math.min(nanos, Math.max(0, (loopDeadline - now) / pending));
+                }
+                budgetDeadline = now + nanos;
+            }
+        }
+
+        /**
+         * 记录已完成的读操作,仅限Worker线程调用
+         */
+        void recordRead(long size) {
+            boolean dispatched = readDispatched;
+            readDispatched = false;
+            if (METRICS_ENABLED) {
+                if (dispatched) {
+                    metrics.selectorReads++;
+                } else {
+                    metrics.directReads++;
+                }
+                if (size > 0) {
+                    metrics.bytesRead += size;
+                }
+            }
+            if (LATENCY_ENABLED && dispatched) {
+                readinessLatency.record(System.nanoTime() - selectTime);
+            }
+        }
+
+        /**
+         * 近期负载。Worker长时间阻塞于select时不再采样,视为空闲
+         */
+        long load() {
+            if (System.nanoTime() - sampleTime > LOAD_SAMPLE_NANOS << 1) {
+                return 0;
+            }
+            return eventRate;
+        }
+
+        private void sampleLoad() {
+            long now = System.nanoTime();
+            if (now - sampleTime >= LOAD_SAMPLE_NANOS) {
+                eventRate = eventCount - sampleEventCount;
+                sampleEventCount = eventCount;
+                sampleTime = now;
+                if (rebalanceEnabled && validSelectionKey == SelectionKey.OP_READ) {
+                    rebalance(this);
+                }
+            }
         }
 
         /**
@@ -275,66 +1062,222 @@ class EnhanceAsynchronousChannelGroup extends AsynchronousChannelGroup {
          */
         void addRegister(WorkerRegister register) {
             registers.offer(register);
-            selector.wakeup();
+            //Worker线程会在下一轮循环中处理,无需wakeup;其余线程共用一次wakeup
+            if (workerThread != Thread.currentThread() && wakeupAtomic.compareAndSet(false, true)) {
+                selector.wakeup();
+            }
         }
 
         public Thread getWorkerThread() {
             return workerThread;
         }
 
+        /**
+         * 登记暂存了写请求的连接,仅限Worker线程调用
+         */
+        void stage(EnhanceAsynchronousSocketChannel channel) {
+            if (stagedChannels.isEmpty()) {
+                stagedTime = System.nanoTime();
+            }
+            stagedChannels.add(channel);
+        }
+
+        /**
+         * 逐个连接flush暂存的写请求。flush触发的写回调可能继续暂存,故按实时长度遍历
+         */
+        private void flushStaged() {
+            for (int i = 0; i < stagedChannels.size(); i++) {
+                stagedChannels.get(i).flushStaged();
+            }
+            stagedChannels.clear();
+        }
+
+        /**
+         * 暂存时间超出上限时提前flush,避免大量就绪事件拉长本轮循环
+         */
+        private void checkStaged() {
+            if (!stagedChannels.isEmpty() && System.nanoTime() - stagedTime >= flushMaxDelayNanos) {
+                flushStaged();
+            }
+        }
+
+        /**
+         * 以selectNow轮询就绪事件及注册队列,超出轮询时长后返回。期间wakeupAtomic保持为true,其他线程提交注册或修改关注事件时无需wakeup
+         *
+         * @param keySet selector的selectedKeys
+         * @return 是否获取到就绪事件或待注册的事件
+         */
+        private boolean busyPoll(Set<SelectionKey> keySet) throws IOException {
+            long deadline = System.nanoTime() + busyPollNanos;
+            int polls = 0;
+            long parkNanos = 1000;
+            do {
+                selector.selectNow();
+                if (!keySet.isEmpty() || !registers.isEmpty()) {
+                    return true;
+                }
+                polls++;
+                if (polls > BUSY_POLL_SPINS + BUSY_POLL_YIELDS) {
+                    LockSupport.parkNanos(parkNanos);
+                    parkNanos = Math.min(parkNanos << 1, BUSY_POLL_MAX_PARK_NANOS);
+                } else if (polls > BUSY_POLL_SPINS) {
+                    Thread.yield();
+                }
+            } while (System.nanoTime() - deadline < 0);
+            return false;
+        }
+
+        /**
+         * 注册超时任务
+         */
+        void schedule(TimeoutTask task, long timeout, TimeUnit unit) {
+            //时间轮空闲时Worker可能阻塞于select,需唤醒以便按刻度推进时间轮
+            if (timer.schedule(task, timeout, unit) && timerIdle && wakeupAtomic.compareAndSet(false, true)) {
+                selector.wakeup();
+            }
+        }
+
         @Override
         public void run() {
             workerThread = Thread.currentThread();
+            timer.setOwnerThread(workerThread);
             // 优先获取SelectionKey,若无关注事件触发则阻塞在selector.select(),减少select被调用次数
             Set<SelectionKey> keySet = selector.selectedKeys();
             try {
                 while (running) {
+                    //上一轮循环暂存的写请求须在select之前输出
+                    if (!stagedChannels.isEmpty()) {
+                        flushStaged();
+                    }
                     if (keySet.isEmpty()) {
-                        if (registers.isEmpty()) {
-                            wakeupAtomic.compareAndSet(true, false);
-                            selector.select();
+                        //轮询期间获取到事件时无需阻塞
+                        boolean polled = busyPollNanos > 0 && registers.isEmpty() && busyPoll(keySet);
+                        if (!polled) {
+                            //须先复位wakeup标识再检查注册队列,否则期间提交的注册可能既不被处理也不触发wakeup
+                            wakeupAtomic.set(false);
+                            if (registers.isEmpty()) {
+                                timerIdle = true;
+                                if (timer.isEmpty()) {
+                                    selector.select();
+                                } else {
+                                    timerIdle = false;
+                                    selector.select(timerTickMillis);
+                                }
+                                timerIdle = false;
+                            } else {
+                                //注册队列未处理完毕时,仍需获取已就绪的事件
+                                selector.selectNow();
+                            }
                             wakeupAtomic.set(true);
                         }
+                        if (LATENCY_ENABLED) {
+                            selectTime = System.nanoTime();
+                        }
+                        if (METRICS_ENABLED) {
+                            metrics.selects++;
+                            if (keySet.isEmpty()) {
+                                metrics.emptySelects++;
+                            }
+                        }
+                    }
+                    resetBudget();
+                    int expired = timer.expire();
+                    if (METRICS_ENABLED) {
+                        metrics.timeouts += expired;
+                        metrics.events += keySet.size();
                     }
                     WorkerRegister register;
-                    while ((register = registers.poll()) != null) {
+                    int batch = MAX_REGISTER_BATCH;
+                    while (batch-- > 0 && (register = registers.poll()) != null) {
                         register.callback(selector);
                     }
+                    if (loadSampling) {
+                        eventCount += keySet.size();
+                        sampleLoad();
+                    }
                     if (keySet.isEmpty()) {
                         continue;
                     }
+                    if (optimizedKeys != null) {
+                        SelectionKey[] keys = optimizedKeys.keys;
+                        try {
+                            for (int i = 0; i < optimizedKeys.size; i++) {
+                                handleSelectionKey(keys[i], optimizedKeys.size - i);
+                                if (flushConsolidation) {
+                                    checkStaged();
+                                }
+                            }
+                        } finally {
+                            // 移除已处理的事件
+                            optimizedKeys.reset();
+                        }
+                        continue;
+                    }
                     Iterator<SelectionKey> keyIterator = keySet.iterator();
                     // 执行本次已触发待处理的事件
                     while (keyIterator.hasNext()) {
                         SelectionKey key = keyIterator.next();
-                        invoker.set(0);
                         try {
-                            if ((validSelectionKey & SelectionKey.OP_ACCEPT) > 0 && key.isAcceptable()) {
-                                EnhanceAsynchronousServerSocketChannel serverSocketChannel = (EnhanceAsynchronousServerSocketChannel) key.attachment();
-                                serverSocketChannel.doAccept();
-                                continue;
-                            }
-                            EnhanceAsynchronousSocketChannel asynchronousSocketChannel = (EnhanceAsynchronousSocketChannel) key.attachment();
-                            // 读取客户端数据
-                            if ((validSelectionKey & SelectionKey.OP_WRITE) > 0 && key.isWritable()) {// 输出数据至客户端
-                                removeOps(key, SelectionKey.OP_WRITE);
-                                asynchronousSocketChannel.doWrite();
-                            } else if ((validSelectionKey & SelectionKey.OP_READ) > 0 && key.isReadable()) {
-                                asynchronousSocketChannel.doRead();
-                            } else if ((validSelectionKey & SelectionKey.OP_CONNECT) > 0 && key.isConnectable()) {
-                                asynchronousSocketChannel.doConnect();
-                            } else {
-                                System.out.println("奇怪了...");
-                            }
+                            handleSelectionKey(key, keySet.size());
                         } finally {
                             // 移除已处理的事件
                             keyIterator.remove();
                         }
+                        if (flushConsolidation) {
+                            checkStaged();
+                        }
                     }
                 }
             } catch (Exception e) {
                 e.printStackTrace();
             }
         }
+
+        /**
+         * @param pending 本轮尚未处理的就绪连接数,含当前连接
+         */
+        private void handleSelectionKey(SelectionKey key, int pending) {
+            //连接可能已在其他线程中关闭,其SelectionKey随之失效
+            if (!key.isValid()) {
+                return;
+            }
+            try {
+                allot(pending);
+                if ((validSelectionKey & SelectionKey.OP_ACCEPT) > 0 && key.isAcceptable()) {
+                    EnhanceAsynchronousServerSocketChannel serverSocketChannel = (EnhanceAsynchronousServerSocketChannel) key.attachment();
+                    dispatched = true;
+                    serverSocketChannel.doAccept();
+                    dispatched = false;
+                    return;
+                }
+                EnhanceAsynchronousSocketChannel asynchronousSocketChannel = (EnhanceAsynchronousSocketChannel) key.attachment();
+                int readyOps = key.readyOps();
+                //连接建立后即移除OP_CONNECT,避免已连接的socket持续触发该事件
+                if ((validSelectionKey & SelectionKey.OP_CONNECT) > 0 && (readyOps & SelectionKey.OP_CONNECT) > 0) {
+                    removeOps(this, key, SelectionKey.OP_CONNECT);
+                    asynchronousSocketChannel.doConnect();
+                    return;
+                }
+                // 输出数据至客户端
+                if ((validSelectionKey & SelectionKey.OP_WRITE) > 0 && (readyOps & SelectionKey.OP_WRITE) > 0) {
+                    removeOps(this, key, SelectionKey.OP_WRITE);
+                    //写队列模式下flush不申请调度预算,不可预留首次操作的额度,以免被回调中无关的操作占用
+                    dispatched = !writeQueueEnabled;
+                    asynchronousSocketChannel.doWrite();
+                    dispatched = false;
+                }
+                // 读取客户端数据,threadPerCore模式下同一SelectionKey可能同时可读可写
+                if ((validSelectionKey & SelectionKey.OP_READ) > 0 && (readyOps & SelectionKey.OP_READ) > 0 && key.isValid()) {
+                    if (METRICS_ENABLED || LATENCY_ENABLED) {
+                        readDispatched = true;
+                    }
+                    dispatched = true;
+                    asynchronousSocketChannel.doRead();
+                    dispatched = false;
+                }
+            } catch (CancelledKeyException e) {
+                //处理期间连接在其他线程中关闭
+            }
+        }
     }
 }
@@ -1,11 +1,15 @@
 package org.smartboot.aio;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.channels.AsynchronousChannelGroup;
 import java.nio.channels.AsynchronousServerSocketChannel;
 import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SocketChannel;
 import java.nio.channels.spi.AsynchronousChannelProvider;
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ThreadFactory;
@@ -17,6 +21,103 @@ import java.util.concurrent.TimeUnit;
  * @version V1.0 , 2020/5/25
  */
 public final class EnhanceAsynchronousChannelProvider extends AsynchronousChannelProvider {
+
+    /**
+     * 为当前线程随后创建的连接指定读写Worker,相同hint的连接分配至相同的Worker,优先于org.smartboot.aio.workerSelector。
+     * 仅作用于当前线程调用openAsynchronousSocketChannel创建的连接
+     *
+     * @param hint 亲和性标识,按Worker数量取模
+     */
+    public static void setWorkerAffinity(int hint) {
+        EnhanceAsynchronousChannelGroup.WORKER_AFFINITY.set(hint);
+    }
+
+    /**
+     * 清除当前线程的Worker亲和性
+     */
+    public static void clearWorkerAffinity() {
+        EnhanceAsynchronousChannelGroup.WORKER_AFFINITY.remove();
+    }
+
+    /**
+     * 获取group内全部Worker的运行指标快照,需开启 -Dorg.smartboot.aio.metrics=true
+     */
+    public static List<WorkerMetricsMBean> metrics(AsynchronousChannelGroup group) {
+        if (!(group instanceof EnhanceAsynchronousChannelGroup)) {
+            throw new RuntimeException("invalid class");
+        }
+        return ((EnhanceAsynchronousChannelGroup) group).metrics();
+    }
+
+    /**
+     * 获取group内全部Worker自上一次调用以来的延迟直方图快照,需开启 -Dorg.smartboot.aio.latency=true。
+     * 与 org.smartboot.aio.latencyListener 定期回调共用区间,二者择一使用
+     */
+    public static List<LatencySnapshot> latency(AsynchronousChannelGroup group) {
+        if (!(group instanceof EnhanceAsynchronousChannelGroup)) {
+            throw new RuntimeException("invalid class");
+        }
+        return ((EnhanceAsynchronousChannelGroup) group).latency();
+    }
+
+    /**
+     * 发起无需预先提供buffer的读操作。连接可读时由读Worker的内存池借出buffer,读取后以flip后的状态回调,
+     * 处理完毕后须通过{@link #release(AsynchronousSocketChannel, ByteBuffer)}归还;对端关闭连接时回调null。
+     * 大量空闲连接等待读取时无需各自持有buffer,buffer大小由 org.smartboot.aio.pooledBufferSize 指定
+     */
+    public static <A> void readOnReady(AsynchronousSocketChannel channel, long timeout, TimeUnit unit, A attachment, CompletionHandler<ByteBuffer, ? super A> handler) {
+        checkAndGet(channel).readOnReady(timeout, unit, attachment, handler);
+    }
+
+    public static <A> void readOnReady(AsynchronousSocketChannel channel, A attachment, CompletionHandler<ByteBuffer, ? super A> handler) {
+        readOnReady(channel, 0, TimeUnit.MILLISECONDS, attachment, handler);
+    }
+
+    /**
+     * 归还readOnReady借出的buffer,可由任意线程调用。
+     *
+     * @throws IllegalArgumentException buffer并非由readOnReady借出或已归还
+     */
+    public static void release(AsynchronousSocketChannel channel, ByteBuffer buffer) {
+        checkAndGet(channel).release(buffer);
+    }
+
+    /**
+     * 将文件指定区间的数据经由FileChannel.transferTo(sendfile)直接输出至socket,数据不经过用户态缓冲区。
+     * 由写Worker的可写事件驱动,socket缓冲区写满时从断点继续,直至count字节全部输出或到达文件末尾后回调累计输出的字节数。
+     * 与write操作共用同一写状态,未完成前再次发起写操作将抛出WritePendingException;
+     * 启用写队列时作为一个写请求排队,按提交顺序输出,此时指定超时将抛出UnsupportedOperationException
+     *
+     * @see #writeMapped(AsynchronousSocketChannel, FileChannel, long, long, long, TimeUnit, Object, CompletionHandler)
+     */
+    public static <A> void transferFrom(AsynchronousSocketChannel channel, FileChannel file, long position, long count, long timeout, TimeUnit unit, A attachment, CompletionHandler<Long, ? super A> handler) {
+        checkAndGet(channel).transferFrom(file, position, count, timeout, unit, attachment, handler);
+    }
+
+    public static <A> void transferFrom(AsynchronousSocketChannel channel, FileChannel file, long position, long count, A attachment, CompletionHandler<Long, ? super A> handler) {
+        transferFrom(channel, file, position, count, 0, TimeUnit.MILLISECONDS, attachment, handler);
+    }
+
+    /**
+     * 将文件指定区间按 org.smartboot.aio.mappedWindowSize 分段映射后以gathering write输出。
+     * 下一窗口的映射及缺页由预取线程提前完成,写Worker不会因此阻塞;已输出的窗口即刻解除映射。
+     * 回调时机及其余约束与transferFrom一致
+     */
+    public static <A> void writeMapped(AsynchronousSocketChannel channel, FileChannel file, long position, long count, long timeout, TimeUnit unit, A attachment, CompletionHandler<Long, ? super A> handler) {
+        checkAndGet(channel).writeMapped(file, position, count, timeout, unit, attachment, handler);
+    }
+
+    public static <A> void writeMapped(AsynchronousSocketChannel channel, FileChannel file, long position, long count, A attachment, CompletionHandler<Long, ? super A> handler) {
+        writeMapped(channel, file, position, count, 0, TimeUnit.MILLISECONDS, attachment, handler);
+    }
+
+    private static EnhanceAsynchronousSocketChannel checkAndGet(AsynchronousSocketChannel channel) {
+        if (!(channel instanceof EnhanceAsynchronousSocketChannel)) {
+            throw new RuntimeException("invalid class");
+        }
+        return (EnhanceAsynchronousSocketChannel) channel;
+    }
+
     @Override
     public AsynchronousChannelGroup openAsynchronousChannelGroup(int nThreads, ThreadFactory threadFactory) throws IOException {
         return new EnhanceAsynchronousChannelGroup(this, new ThreadPoolExecutor(nThreads, nThreads,
@@ -32,7 +133,11 @@ public final class EnhanceAsynchronousChannelProvider extends AsynchronousChanne
 
     @Override
     public AsynchronousServerSocketChannel openAsynchronousServerSocketChannel(AsynchronousChannelGroup group) throws IOException {
-        return new EnhanceAsynchronousServerSocketChannel(checkAndGet(group));
+        EnhanceAsynchronousChannelGroup enhanceGroup = checkAndGet(group);
+        if (enhanceGroup.isShardedAccept() && enhanceGroup.getAcceptWorkers().length > 1) {
+            return new ShardedAsynchronousServerSocketChannel(enhanceGroup);
+        }
+        return new EnhanceAsynchronousServerSocketChannel(enhanceGroup);
     }
 
     @Override
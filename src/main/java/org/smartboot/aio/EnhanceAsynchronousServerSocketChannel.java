@@ -24,21 +24,46 @@ final class EnhanceAsynchronousServerSocketChannel extends AsynchronousServerSoc
     private final EnhanceAsynchronousChannelGroup enhanceAsynchronousChannelGroup;
     private final EnhanceAsynchronousChannelGroup.Worker acceptWorker;
     private CompletionHandler<AsynchronousSocketChannel, Object> acceptCompletionHandler;
-    private FutureCompletionHandler<AsynchronousSocketChannel, Void> acceptFuture;
+    private FutureCompletionHandler<?, ?> acceptFuture;
     private Object attachment;
     private SelectionKey selectionKey;
-    private boolean acceptPending;
+    private volatile boolean acceptPending;
+    /**
+     * 是否处于批量accept循环中,仅由accept Worker线程读写
+     */
+    private boolean draining;
+    /**
+     * 预分配的selector注册回调
+     */
+    private final WorkerRegister acceptRegister = new WorkerRegister() {
+        @Override
+        public void callback(Selector selector) {
+            try {
+                selectionKey = serverSocketChannel.register(selector, SelectionKey.OP_ACCEPT);
+                selectionKey.attach(EnhanceAsynchronousServerSocketChannel.this);
+            } catch (ClosedChannelException e) {
+                acceptCompletionHandler.failed(e, attachment);
+            }
+        }
+    };
 
     /**
      * Initializes a new instance of this class.
      */
     protected EnhanceAsynchronousServerSocketChannel(EnhanceAsynchronousChannelGroup enhanceAsynchronousChannelGroup) throws IOException {
+        this(enhanceAsynchronousChannelGroup, enhanceAsynchronousChannelGroup.getAcceptWorker());
+        System.out.println("enhance...");
+    }
+
+    /**
+     * 绑定至指定accept Worker,用作分片监听
+     */
+    EnhanceAsynchronousServerSocketChannel(EnhanceAsynchronousChannelGroup enhanceAsynchronousChannelGroup, EnhanceAsynchronousChannelGroup.Worker acceptWorker) throws IOException {
         super(enhanceAsynchronousChannelGroup.provider());
         this.enhanceAsynchronousChannelGroup = enhanceAsynchronousChannelGroup;
         serverSocketChannel = ServerSocketChannel.open();
         serverSocketChannel.configureBlocking(false);
-        acceptWorker = enhanceAsynchronousChannelGroup.getAcceptWorker();
-        System.out.println("enhance...");
+        this.acceptWorker = acceptWorker;
     }
 
     @Override
@@ -68,50 +93,48 @@ final class EnhanceAsynchronousServerSocketChannel extends AsynchronousServerSoc
         if (acceptPending) {
             throw new AcceptPendingException();
         }
-        acceptPending = true;
         this.acceptCompletionHandler = (CompletionHandler<AsynchronousSocketChannel, Object>) handler;
         this.attachment = attachment;
+        //Future方式调用,须在发起accept前记录,以便感知cancel
+        if (handler instanceof FutureCompletionHandler) {
+            acceptFuture = (FutureCompletionHandler<?, ?>) handler;
+        }
+        //accept Worker可能随时读取该标记并接入连接,须在回调信息就绪后才标记
+        acceptPending = true;
         doAccept();
     }
 
     public void doAccept() {
+        //批量accept循环中由回调再次发起的accept,交由外层循环继续处理
+        if (draining && acceptWorker.getWorkerThread() == Thread.currentThread()) {
+            return;
+        }
         try {
             //此前通过Future调用,且触发了cancel
             if (acceptFuture != null && acceptFuture.isDone()) {
                 resetAccept();
-                enhanceAsynchronousChannelGroup.removeOps(selectionKey, SelectionKey.OP_ACCEPT);
+                removeAcceptInterest();
                 return;
             }
-            boolean directAccept = (acceptWorker.getWorkerThread() == Thread.currentThread()
-                    && acceptWorker.getInvoker().getAndIncrement() < EnhanceAsynchronousChannelGroup.MAX_INVOKER);
+            boolean directAccept = acceptWorker.getWorkerThread() == Thread.currentThread() && acceptWorker.acquire();
             SocketChannel socketChannel = null;
             if (directAccept) {
                 socketChannel = serverSocketChannel.accept();
             }
             if (socketChannel != null) {
-                EnhanceAsynchronousSocketChannel asynchronousSocketChannel = new EnhanceAsynchronousSocketChannel(enhanceAsynchronousChannelGroup, socketChannel);
-                socketChannel.finishConnect();
-                CompletionHandler<AsynchronousSocketChannel, Object> completionHandler = acceptCompletionHandler;
-                Object attach = attachment;
-                resetAccept();
-                completionHandler.completed(asynchronousSocketChannel, attach);
+                int batch = enhanceAsynchronousChannelGroup.getAcceptBatch();
+                if (batch > 1) {
+                    drain(socketChannel, batch);
+                    return;
+                }
+                complete(socketChannel);
                 if (!acceptPending && selectionKey != null) {
-                    enhanceAsynchronousChannelGroup.removeOps(selectionKey, SelectionKey.OP_ACCEPT);
+                    removeAcceptInterest();
                 }
             }
             //首次注册selector
             else if (selectionKey == null) {
-                acceptWorker.addRegister(new WorkerRegister() {
-                    @Override
-                    public void callback(Selector selector) {
-                        try {
-                            selectionKey = serverSocketChannel.register(selector, SelectionKey.OP_ACCEPT);
-                            selectionKey.attach(EnhanceAsynchronousServerSocketChannel.this);
-                        } catch (ClosedChannelException e) {
-                            acceptCompletionHandler.failed(e, attachment);
-                        }
-                    }
-                });
+                acceptWorker.addRegister(acceptRegister);
             } else {
                 enhanceAsynchronousChannelGroup.interestOps(acceptWorker, selectionKey, SelectionKey.OP_ACCEPT);
             }
@@ -121,6 +144,70 @@ final class EnhanceAsynchronousServerSocketChannel extends AsynchronousServerSoc
 
     }
 
+    /**
+     * 单次可接入事件中循环接入至多batch个连接,回调中再次发起的accept不再递归,接入事件保持关注直至backlog为空。
+     * 每个连接消耗一次accept Worker的调度预算,预算耗尽时留待下一轮循环继续接入
+     */
+    private void drain(SocketChannel socketChannel, int batch) throws IOException {
+        draining = true;
+        try {
+            while (true) {
+                complete(socketChannel);
+                if (!acceptPending || --batch == 0) {
+                    break;
+                }
+                if (acceptFuture != null && acceptFuture.isDone()) {
+                    resetAccept();
+                    break;
+                }
+                if (!acceptWorker.acquire()) {
+                    break;
+                }
+                socketChannel = serverSocketChannel.accept();
+                if (socketChannel == null) {
+                    break;
+                }
+            }
+        } finally {
+            draining = false;
+        }
+        if (!acceptPending) {
+            if (selectionKey != null) {
+                removeAcceptInterest();
+            }
+        } else if (selectionKey == null) {
+            acceptWorker.addRegister(acceptRegister);
+        } else {
+            enhanceAsynchronousChannelGroup.interestOps(acceptWorker, selectionKey, SelectionKey.OP_ACCEPT);
+        }
+    }
+
+    /**
+     * 移除接入事件的关注。回调唤醒的其他线程可能在移除前已再次发起accept,移除后须重新检查
+     */
+    private void removeAcceptInterest() {
+        enhanceAsynchronousChannelGroup.removeOps(acceptWorker, selectionKey, SelectionKey.OP_ACCEPT);
+        if (acceptPending) {
+            enhanceAsynchronousChannelGroup.interestOps(acceptWorker, selectionKey, SelectionKey.OP_ACCEPT);
+        }
+    }
+
+    private void complete(SocketChannel socketChannel) throws IOException {
+        EnhanceAsynchronousSocketChannel asynchronousSocketChannel = new EnhanceAsynchronousSocketChannel(enhanceAsynchronousChannelGroup, socketChannel);
+        socketChannel.finishConnect();
+        CompletionHandler<AsynchronousSocketChannel, Object> completionHandler = acceptCompletionHandler;
+        Object attach = attachment;
+        resetAccept();
+        completionHandler.completed(asynchronousSocketChannel, attach);
+    }
+
+    /**
+     * 是否存在挂起的accept
+     */
+    boolean isAcceptPending() {
+        return acceptPending;
+    }
+
     private void resetAccept() {
         acceptPending = false;
         acceptFuture = null;
@@ -132,7 +219,6 @@ final class EnhanceAsynchronousServerSocketChannel extends AsynchronousServerSoc
     public Future<AsynchronousSocketChannel> accept() {
         FutureCompletionHandler<AsynchronousSocketChannel, Void> acceptFuture = new FutureCompletionHandler<>();
         accept(null, acceptFuture);
-        this.acceptFuture = acceptFuture;
         return acceptFuture;
     }
 
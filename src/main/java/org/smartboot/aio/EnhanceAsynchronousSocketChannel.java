@@ -18,6 +18,7 @@ import java.nio.channels.AsynchronousSocketChannel;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.CompletionHandler;
 import java.nio.channels.ConnectionPendingException;
+import java.nio.channels.FileChannel;
 import java.nio.channels.NotYetConnectedException;
 import java.nio.channels.ReadPendingException;
 import java.nio.channels.SelectionKey;
@@ -28,7 +29,7 @@ import java.nio.channels.WritePendingException;
 import java.util.Set;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 模拟JDK7的AIO处理方式
@@ -39,40 +40,181 @@ import java.util.concurrent.atomic.AtomicInteger;
 final class EnhanceAsynchronousSocketChannel extends AsynchronousSocketChannel {
     private final SocketChannel channel;
     private final EnhanceAsynchronousChannelGroup group;
-    private final EnhanceAsynchronousChannelGroup.Worker readWorker;
+    /**
+     * 读Worker,启用负载均衡时可能被迁移至其他Worker
+     */
+    private volatile EnhanceAsynchronousChannelGroup.Worker readWorker;
+    /**
+     * 写及connect Worker,threadPerCore模式下与读Worker为同一个
+     */
     private final EnhanceAsynchronousChannelGroup.Worker writeWorker;
-    private final AtomicInteger writeInvoker = new AtomicInteger(0);
+    /**
+     * 读写共用同一个Worker及SelectionKey
+     */
+    private final boolean unified;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    /**
+     * 是否允许被负载均衡迁移,指定了Worker亲和性的连接不参与迁移
+     */
+    private final boolean migratable;
+    /**
+     * 读Worker线程处理的读事件数,仅由读Worker线程访问
+     */
+    private int readEvents;
+    /**
+     * 待迁入的读Worker,仅由读Worker线程访问
+     */
+    private EnhanceAsynchronousChannelGroup.Worker migrateTarget;
+    /**
+     * 发起写操作的时间点,仅在启用延迟直方图时使用
+     */
+    private long writeStartTime;
+    /**
+     * 写队列,未启用时为null
+     */
+    private final WriteQueue writeQueue;
+    /**
+     * 读Worker线程是否正处于读回调中,仅由读Worker线程访问
+     */
+    private boolean readCallback;
+    /**
+     * 读回调中提交的写请求延迟至回调结束后统一flush,仅由读Worker线程访问
+     */
+    private boolean flushDeferred;
+    /**
+     * 写队列已登记至读Worker,待其本轮循环结束时flush,仅由读Worker线程访问
+     */
+    private boolean staged;
     private ByteBuffer readBuffer;
+    /**
+     * 当前读操作是否在可读时才借出buffer
+     */
+    private boolean readOnReady;
     private Scattering readScattering;
+    /**
+     * 读写各自复用的Scattering游标
+     */
+    private final Scattering readCursor = new Scattering();
+    private final Scattering writeCursor = new Scattering();
+    /**
+     * 回调串行执行器,为null时于Worker线程中直接回调
+     */
+    private final SerialExecutor handlerExecutor;
+    /**
+     * 读写各自复用的回调转交对象
+     */
+    private DispatchHandler<Object> readDispatchHandler;
+    private DispatchHandler<Number> writeDispatchHandler;
     private ByteBuffer writeBuffer;
     private Scattering writeScattering;
-    private CompletionHandler<Number, Object> readCompletionHandler;
+    /**
+     * transferFrom待输出的文件区间
+     */
+    private FileRegion writeRegion;
+    /**
+     * 读结果为Integer、Long,或readOnReady时的ByteBuffer
+     */
+    private CompletionHandler<Object, Object> readCompletionHandler;
     private CompletionHandler<Number, Object> writeCompletionHandler;
     private CompletionHandler<Void, Object> connectCompletionHandler;
-    private FutureCompletionHandler<Void, Void> connectFuture;
-    private FutureCompletionHandler<? extends Number, Object> readFuture;
-    private FutureCompletionHandler<? extends Number, Object> writeFuture;
+    private FutureCompletionHandler<?, ?> connectFuture;
+    private FutureCompletionHandler<?, ?> readFuture;
+    private FutureCompletionHandler<?, ?> writeFuture;
+    /**
+     * 可复用的读写超时回调
+     */
+    private FutureCompletionHandler<Object, Object> readTimeoutHandler;
+    private FutureCompletionHandler<Number, Object> writeTimeoutHandler;
     private Object readAttachment;
     private Object writeAttachment;
     private Object connectAttachment;
     private SelectionKey readSelectionKey;
     private SelectionKey writeSelectionKey;
     private boolean writePending;
-    private boolean readPending;
+    /**
+     * 延迟移除读事件时,读Worker与发起读操作的线程据此判定是否需要保留读事件,故为volatile
+     */
+    private volatile boolean readPending;
     private boolean connectionPending;
     private SocketAddress remote;
+    /**
+     * 预分配的selector注册回调
+     */
+    private final WorkerRegister connectRegister = new WorkerRegister() {
+        @Override
+        public void callback(Selector selector) {
+            try {
+                writeSelectionKey = register(selector, SelectionKey.OP_CONNECT);
+            } catch (ClosedChannelException e) {
+                connectCompletionHandler.failed(e, connectAttachment);
+            }
+        }
+    };
+    private final WorkerRegister readRegister = new WorkerRegister() {
+        @Override
+        public void callback(Selector selector) {
+            try {
+                readSelectionKey = register(selector, SelectionKey.OP_READ);
+            } catch (ClosedChannelException e) {
+                readCompletionHandler.failed(e, readAttachment);
+            }
+        }
+    };
+    private final WorkerRegister writeRegister = new WorkerRegister() {
+        @Override
+        public void callback(Selector selector) {
+            try {
+                writeSelectionKey = register(selector, SelectionKey.OP_WRITE);
+            } catch (ClosedChannelException e) {
+                if (writeQueue != null) {
+                    failWriteQueue(e);
+                } else {
+                    writeCompletionHandler.failed(e, writeAttachment);
+                }
+            }
+        }
+    };
+    /**
+     * 文件区间等待的数据就绪后,于写Worker中继续输出
+     */
+    private final WorkerRegister writeResumeRegister = new WorkerRegister() {
+        @Override
+        public void callback(Selector selector) {
+            //等待期间写操作可能已因超时或异常结束
+            if (writeQueue != null ? writeQueue.region() != null : writeRegion != null) {
+                doWrite();
+            }
+        }
+    };
+    private final Runnable writeResume = new Runnable() {
+        @Override
+        public void run() {
+            writeWorker.addRegister(writeResumeRegister);
+        }
+    };
 
     public EnhanceAsynchronousSocketChannel(EnhanceAsynchronousChannelGroup group, SocketChannel channel) throws IOException {
         super(group.provider());
         this.group = group;
         this.channel = channel;
+        unified = group.isThreadPerCore();
+        //读写共用Worker时迁移须连同写事件一并转移,不参与负载均衡
+        migratable = !unified && EnhanceAsynchronousChannelGroup.WORKER_AFFINITY.get() == null;
         readWorker = group.getReadWorker();
-        writeWorker = group.getWriteWorker();
+        writeWorker = unified ? readWorker : group.getWriteWorker();
+        writeQueue = group.isWriteQueueEnabled() ? new WriteQueue() : null;
+        handlerExecutor = group.getHandlerExecutor() == null ? null : new SerialExecutor(group.getHandlerExecutor());
         channel.configureBlocking(false);
     }
 
     @Override
     public void close() throws IOException {
+        if (closed.compareAndSet(false, true)) {
+            readWorker.channelCount.decrementAndGet();
+            if (!unified) {
+                writeWorker.channelCount.decrementAndGet();
+            }
+        }
         IOException exception = null;
         try {
             channel.close();
@@ -143,6 +285,10 @@ final class EnhanceAsynchronousSocketChannel extends AsynchronousSocketChannel {
         connectionPending = true;
         this.connectAttachment = attachment;
         this.connectCompletionHandler = (CompletionHandler<Void, Object>) handler;
+        //Future方式调用,须在发起连接前记录,以便感知cancel
+        if (handler instanceof FutureCompletionHandler) {
+            connectFuture = (FutureCompletionHandler<?, ?>) handler;
+        }
         this.remote = remote;
         doConnect();
     }
@@ -151,33 +297,66 @@ final class EnhanceAsynchronousSocketChannel extends AsynchronousSocketChannel {
     public Future<Void> connect(SocketAddress remote) {
         FutureCompletionHandler<Void, Void> connectFuture = new FutureCompletionHandler<>();
         connect(remote, null, connectFuture);
-        this.connectFuture = connectFuture;
         return connectFuture;
     }
 
     @Override
     public <A> void read(ByteBuffer dst, long timeout, TimeUnit unit, A attachment, CompletionHandler<Integer, ? super A> handler) {
-        read0(dst, null, timeout, unit, attachment, handler);
+        read0(dst, null, 0, 0, false, timeout, unit, attachment, handler);
+    }
+
+    /**
+     * 无需预先提供buffer的读操作:连接可读时由读Worker的内存池借出buffer,读取后以flip后的状态回调,
+     * 回调方处理完毕后须通过{@link #release(ByteBuffer)}归还。对端关闭连接时回调null
+     */
+    <A> void readOnReady(long timeout, TimeUnit unit, A attachment, CompletionHandler<ByteBuffer, ? super A> handler) {
+        read0(null, null, 0, 0, true, timeout, unit, attachment, handler);
     }
 
-    private <V extends Number, A> void read0(ByteBuffer readBuffer, Scattering scattering, long timeout, TimeUnit unit, A attachment, CompletionHandler<V, ? super A> handler) {
+    /**
+     * 归还readOnReady借出的buffer,null将被忽略
+     */
+    void release(ByteBuffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+        //连接迁移后buffer可能由迁出前的读Worker借出
+        if (!readWorker.bufferPool.release(buffer) && !group.releasePooledBuffer(buffer)) {
+            throw new IllegalArgumentException("buffer is not leased by readOnReady or has already been released");
+        }
+    }
+
+    private <V, A> void read0(ByteBuffer readBuffer, ByteBuffer[] dsts, int offset, int length, boolean readOnReady, long timeout, TimeUnit unit, A attachment, CompletionHandler<V, ? super A> handler) {
         if (!channel.isConnected()) {
             throw new NotYetConnectedException();
         }
         if (readPending) {
             throw new ReadPendingException();
         }
-        readPending = true;
+        //无读操作进行中方可重置游标
+        this.readScattering = dsts == null ? null : readCursor.reset(dsts, offset, length);
         this.readBuffer = readBuffer;
-        this.readScattering = scattering;
+        this.readOnReady = readOnReady;
         this.readAttachment = attachment;
+        CompletionHandler<Object, Object> completionHandler = (CompletionHandler<Object, Object>) handler;
+        if (handlerExecutor != null && !(handler instanceof FutureCompletionHandler)) {
+            readDispatchHandler = DispatchHandler.bind(readDispatchHandler, handlerExecutor, completionHandler);
+            completionHandler = readDispatchHandler;
+        }
         if (timeout > 0) {
-            readFuture = new FutureCompletionHandler<>((CompletionHandler<Number, Object>) handler, readAttachment);
-            readCompletionHandler = (CompletionHandler<Number, Object>) readFuture;
-            group.getScheduledExecutor().schedule(readFuture, timeout, unit);
+            readTimeoutHandler = timeoutHandler(readTimeoutHandler, readWorker, completionHandler, readAttachment);
+            readFuture = readTimeoutHandler;
+            readCompletionHandler = readTimeoutHandler;
+            readWorker.schedule(readFuture, timeout, unit);
         } else {
-            this.readCompletionHandler = (CompletionHandler<Number, Object>) handler;
+            this.readCompletionHandler = completionHandler;
+            //Future方式调用,须在发起读操作前记录,以便感知cancel
+            if (handler instanceof FutureCompletionHandler) {
+                readFuture = (FutureCompletionHandler<?, ?>) handler;
+            }
         }
+        //保留读事件时读Worker可能随时触发读操作,须在读操作状态就绪后才标记
+        readPending = true;
         doRead();
     }
 
@@ -185,53 +364,129 @@ final class EnhanceAsynchronousSocketChannel extends AsynchronousSocketChannel {
     public Future<Integer> read(ByteBuffer readBuffer) {
         FutureCompletionHandler<Integer, Object> readFuture = new FutureCompletionHandler<>();
         read(readBuffer, 0, TimeUnit.MILLISECONDS, null, readFuture);
-        this.readFuture = readFuture;
         return readFuture;
     }
 
     @Override
     public <A> void read(ByteBuffer[] dsts, int offset, int length, long timeout, TimeUnit unit, A attachment, CompletionHandler<Long, ? super A> handler) {
-        read0(null, new Scattering(dsts, offset, length), timeout, unit, attachment, handler);
+        read0(null, dsts, offset, length, false, timeout, unit, attachment, handler);
     }
 
     @Override
     public <A> void write(ByteBuffer src, long timeout, TimeUnit unit, A attachment, CompletionHandler<Integer, ? super A> handler) {
-        write0(src, null, timeout, unit, attachment, handler);
+        write0(src, null, 0, 0, null, timeout, unit, attachment, handler);
+    }
+
+    /**
+     * 将文件指定区间的数据通过FileChannel.transferTo直接输出至socket。
+     * socket缓冲区写满时注册可写事件并从断点继续,直至count字节全部输出或到达文件末尾后才回调累计输出的字节数
+     */
+    <A> void transferFrom(FileChannel file, long position, long count, long timeout, TimeUnit unit, A attachment, CompletionHandler<Long, ? super A> handler) {
+        if (position < 0 || count < 0) {
+            throw new IllegalArgumentException();
+        }
+        write0(null, null, 0, 0, new TransferFileRegion(file, position, count), timeout, unit, attachment, handler);
+    }
+
+    /**
+     * 将文件指定区间按窗口映射后以gathering write输出,下一窗口的映射及缺页由预取线程提前完成,
+     * 已输出的窗口即刻解除映射。回调时机与transferFrom一致
+     */
+    <A> void writeMapped(FileChannel file, long position, long count, long timeout, TimeUnit unit, A attachment, CompletionHandler<Long, ? super A> handler) {
+        if (position < 0 || count < 0) {
+            throw new IllegalArgumentException();
+        }
+        write0(null, null, 0, 0, new MappedFileRegion(file, position, count, group.prefetchExecutor(), group.getMappedWindowSize(), writeResume), timeout, unit, attachment, handler);
     }
 
-    private <V extends Number, A> void write0(ByteBuffer writeBuffer, Scattering scattering, long timeout, TimeUnit unit, A attachment, CompletionHandler<V, ? super A> handler) {
+    private <V extends Number, A> void write0(ByteBuffer writeBuffer, ByteBuffer[] srcs, int offset, int length, FileRegion region, long timeout, TimeUnit unit, A attachment, CompletionHandler<V, ? super A> handler) {
         if (!channel.isConnected()) {
             throw new NotYetConnectedException();
         }
+        CompletionHandler<Number, Object> completionHandler = (CompletionHandler<Number, Object>) handler;
+        //写队列模式下不抛出WritePendingException;排队中的请求无法撤回,故不支持写超时
+        if (writeQueue != null) {
+            if (timeout > 0) {
+                throw new UnsupportedOperationException("write timeout is not supported when write queue is enabled");
+            }
+            if (handlerExecutor != null && !(handler instanceof FutureCompletionHandler)) {
+                completionHandler = DispatchHandler.bind(null, handlerExecutor, completionHandler);
+            }
+            //排队中的请求各自持有游标
+            Object source = region != null ? region : writeBuffer != null ? writeBuffer : new Scattering(srcs, offset, length);
+            boolean flusher = writeQueue.offer(source, completionHandler, attachment);
+            boolean workerThread = Thread.currentThread() == readWorker.getWorkerThread();
+            if (group.isFlushConsolidation() && workerThread) {
+                //由读Worker在本轮循环结束时统一flush,暂存数据过多时提前输出
+                if (flusher) {
+                    staged = true;
+                    readWorker.stage(this);
+                }
+                if (staged && writeQueue.bytes() >= group.getFlushThreshold()) {
+                    flushStaged();
+                }
+            } else if (flusher) {
+                if (readCallback && workerThread) {
+                    flushDeferred = true;
+                } else {
+                    flushWriteQueue();
+                }
+            }
+            return;
+        }
         if (writePending) {
             throw new WritePendingException();
         }
+        this.writeScattering = srcs == null ? null : writeCursor.reset(srcs, offset, length);
 
         writePending = true;
+        if (EnhanceAsynchronousChannelGroup.LATENCY_ENABLED) {
+            writeStartTime = System.nanoTime();
+        }
         this.writeBuffer = writeBuffer;
-        this.writeScattering = scattering;
+        this.writeRegion = region;
         this.writeAttachment = attachment;
+        if (handlerExecutor != null && !(handler instanceof FutureCompletionHandler)) {
+            writeDispatchHandler = DispatchHandler.bind(writeDispatchHandler, handlerExecutor, completionHandler);
+            completionHandler = writeDispatchHandler;
+        }
         if (timeout > 0) {
-            writeFuture = new FutureCompletionHandler<>((CompletionHandler<Number, Object>) handler, writeAttachment);
-            writeCompletionHandler = (CompletionHandler<Number, Object>) writeFuture;
-            group.getScheduledExecutor().schedule(writeFuture, timeout, unit);
+            writeTimeoutHandler = timeoutHandler(writeTimeoutHandler, writeWorker, completionHandler, writeAttachment);
+            writeFuture = writeTimeoutHandler;
+            writeCompletionHandler = writeTimeoutHandler;
+            writeWorker.schedule(writeFuture, timeout, unit);
         } else {
-            this.writeCompletionHandler = (CompletionHandler<Number, Object>) handler;
+            this.writeCompletionHandler = completionHandler;
+            //Future方式调用,须在发起写操作前记录,以便感知cancel
+            if (handler instanceof FutureCompletionHandler) {
+                writeFuture = (FutureCompletionHandler<?, ?>) handler;
+            }
         }
         doWrite();
     }
 
+    /**
+     * 获取超时回调。上一次使用的对象已完成且已移出时间轮时直接复用,否则重新分配。
+     * 时间轮的槽位信息仅对Worker线程可见,故只在Worker线程中复用
+     */
+    private <V> FutureCompletionHandler<V, Object> timeoutHandler(FutureCompletionHandler<V, Object> cached, EnhanceAsynchronousChannelGroup.Worker worker, CompletionHandler<V, Object> handler, Object attachment) {
+        if (cached != null && cached.isDone() && cached.isIdle() && worker.getWorkerThread() == Thread.currentThread()) {
+            cached.reset(handler, attachment);
+            return cached;
+        }
+        return new FutureCompletionHandler<>(handler, attachment);
+    }
+
     @Override
     public Future<Integer> write(ByteBuffer src) {
         FutureCompletionHandler<Integer, Object> writeFuture = new FutureCompletionHandler<>();
-        write0(src, null, 0, TimeUnit.MILLISECONDS, null, writeFuture);
-        this.writeFuture = writeFuture;
+        write0(src, null, 0, 0, null, 0, TimeUnit.MILLISECONDS, null, writeFuture);
         return writeFuture;
     }
 
     @Override
     public <A> void write(ByteBuffer[] srcs, int offset, int length, long timeout, TimeUnit unit, A attachment, CompletionHandler<Long, ? super A> handler) {
-        write0(null, new Scattering(srcs, offset, length), timeout, unit, attachment, handler);
+        write0(null, srcs, offset, length, null, timeout, unit, attachment, handler);
     }
 
     @Override
@@ -256,19 +511,10 @@ final class EnhanceAsynchronousSocketChannel extends AsynchronousSocketChannel {
                 resetConnect();
                 completionHandler.completed(null, attach);
             } else if (writeSelectionKey == null) {
-                writeWorker.addRegister(new WorkerRegister() {
-                    @Override
-                    public void callback(Selector selector) {
-                        try {
-                            writeSelectionKey = channel.register(selector, SelectionKey.OP_CONNECT);
-                            writeSelectionKey.attach(EnhanceAsynchronousSocketChannel.this);
-                        } catch (ClosedChannelException e) {
-                            writeCompletionHandler.failed(e, writeAttachment);
-                        }
-                    }
-                });
+                writeWorker.addRegister(connectRegister);
             } else {
-                throw new IOException("unKnow exception");
+                //可连接事件触发时已移除OP_CONNECT,连接尚未建立则重新关注
+                group.interestOps(writeWorker, writeSelectionKey, SelectionKey.OP_CONNECT);
             }
         } catch (IOException e) {
             connectCompletionHandler.failed(e, connectAttachment);
@@ -284,24 +530,48 @@ final class EnhanceAsynchronousSocketChannel extends AsynchronousSocketChannel {
     }
 
     public void doRead() {
+        //读事件触发时不存在进行中的读操作,方才移除读事件
+        if (!readPending) {
+            group.removeOps(readWorker, readSelectionKey, SelectionKey.OP_READ);
+            //移除期间其他线程可能已发起读操作并认为读事件仍有效,须重新关注
+            if (readPending) {
+                group.interestOps(readWorker, readSelectionKey, SelectionKey.OP_READ);
+            }
+            return;
+        }
         try {
             //此前通过Future调用,且触发了cancel
             if (readFuture != null && readFuture.isDone()) {
-                group.removeOps(readSelectionKey, SelectionKey.OP_READ);
+                group.removeOps(readWorker, readSelectionKey, SelectionKey.OP_READ);
                 resetRead();
                 return;
             }
 
-            boolean directRead = Thread.currentThread() == readWorker.getWorkerThread()
-                    && readWorker.getInvoker().getAndIncrement() < EnhanceAsynchronousChannelGroup.MAX_INVOKER;
+            boolean workerThread = Thread.currentThread() == readWorker.getWorkerThread();
+            //回调转交模式下读事件触发时不存在进行中的回调,即为迁移的安全点
+            if (handlerExecutor != null && workerThread && migrateTarget != null && readSelectionKey != null) {
+                migrate();
+                return;
+            }
+            if (workerThread) {
+                readEvents++;
+            }
+            boolean directRead = workerThread && readWorker.acquire();
 
+            //readOnReady模式仅在实际读取时借出buffer,未读到数据则立即归还
+            if (readOnReady && directRead) {
+                readBuffer = readWorker.bufferPool.lease();
+            }
             long totalSize = 0;
             long readSize;
             boolean hasRemain = true;
             while (directRead && hasRemain) {
                 if (readScattering != null) {
                     readSize = channel.read(readScattering.getBuffers(), readScattering.getOffset(), readScattering.getLength());
-                    hasRemain = hasRemaining(readScattering);
+                    if (readSize > 0) {
+                        readScattering.advance(readSize);
+                    }
+                    hasRemain = readScattering.hasRemaining();
                 } else {
                     readSize = channel.read(readBuffer);
                     hasRemain = readBuffer.hasRemaining();
@@ -314,66 +584,203 @@ final class EnhanceAsynchronousSocketChannel extends AsynchronousSocketChannel {
                 }
                 totalSize += readSize;
             }
+            if (directRead && totalSize > 0) {
+                readWorker.consume(totalSize);
+            }
+            if (readOnReady && directRead && totalSize <= 0) {
+                readWorker.bufferPool.release(readBuffer);
+                readBuffer = null;
+            }
             if (totalSize != 0 || !hasRemain) {
-                CompletionHandler<Number, Object> completionHandler = readCompletionHandler;
+                CompletionHandler<Object, Object> completionHandler = readCompletionHandler;
                 Object attach = readAttachment;
                 Scattering scattering = readScattering;
+                ByteBuffer buffer = readBuffer;
+                boolean onReady = readOnReady;
                 resetRead();
-                if (scattering == null) {
-                    completionHandler.completed((int) totalSize, attach);
-                } else {
-                    completionHandler.completed(totalSize, attach);
+                if ((EnhanceAsynchronousChannelGroup.METRICS_ENABLED || EnhanceAsynchronousChannelGroup.LATENCY_ENABLED) && directRead) {
+                    readWorker.recordRead(totalSize);
                 }
-
-                if (!readPending && readSelectionKey != null) {
-                    group.removeOps(readSelectionKey, SelectionKey.OP_READ);
+                //仅在读Worker线程中标记回调状态,嵌套回调由最外层统一flush
+                boolean nested = !directRead || readCallback;
+                if (directRead) {
+                    readCallback = true;
                 }
-            } else if (readSelectionKey == null) {
-                readWorker.addRegister(new WorkerRegister() {
-                    @Override
-                    public void callback(Selector selector) {
-                        try {
-                            readSelectionKey = channel.register(selector, SelectionKey.OP_READ);
-                            readSelectionKey.attach(EnhanceAsynchronousSocketChannel.this);
-                        } catch (ClosedChannelException e) {
-                            readCompletionHandler.failed(e, readAttachment);
+                //转交后的回调可能在其他线程中立即发起下一次读操作,须在转交前移除读事件,以免覆盖其重新注册的读事件。
+                //延迟移除模式下读事件保持关注,无需移除
+                if (handlerExecutor != null && readSelectionKey != null && !group.isLazyReadInterest()) {
+                    group.removeOps(readWorker, readSelectionKey, SelectionKey.OP_READ);
+                }
+                long handlerStart = EnhanceAsynchronousChannelGroup.LATENCY_ENABLED && !nested ? System.nanoTime() : 0;
+                try {
+                    if (onReady) {
+                        if (buffer != null) {
+                            buffer.flip();
                         }
+                        completionHandler.completed(buffer, attach);
+                    } else if (scattering == null) {
+                        completionHandler.completed((int) totalSize, attach);
+                    } else {
+                        completionHandler.completed(totalSize, attach);
+                    }
+                } finally {
+                    if (directRead) {
+                        readCallback = nested;
+                    }
+                }
+                if (EnhanceAsynchronousChannelGroup.LATENCY_ENABLED && !nested) {
+                    readWorker.handlerLatency.record(System.nanoTime() - handlerStart);
+                }
+                if (!nested && flushDeferred) {
+                    flushDeferred = false;
+                    flushWriteQueue();
+                }
+                //最外层回调结束后,已提交的读操作仅在等待可读事件,此时可安全迁移
+                if (handlerExecutor != null) {
+                    return;
+                }
+                if (!nested && migrateTarget != null && readPending && readSelectionKey != null) {
+                    migrate();
+                    return;
+                }
+
+                if (!readPending && readSelectionKey != null && !group.isLazyReadInterest()) {
+                    group.removeOps(readWorker, readSelectionKey, SelectionKey.OP_READ);
+                    //回调唤醒的其他线程可能已发起读操作并认为读事件仍有效,须重新关注
+                    if (readPending) {
+                        group.interestOps(readWorker, readSelectionKey, SelectionKey.OP_READ);
                     }
-                });
+                }
+            } else if (readSelectionKey == null) {
+                readWorker.addRegister(readRegister);
             } else {
                 group.interestOps(readWorker, readSelectionKey, SelectionKey.OP_READ);
             }
 
         } catch (IOException e) {
+            if (readOnReady && readBuffer != null) {
+                readWorker.bufferPool.release(readBuffer);
+                readBuffer = null;
+            }
+            //转交后的回调关闭连接前,避免读事件再次触发
+            if (handlerExecutor != null && readSelectionKey != null) {
+                group.removeOps(readWorker, readSelectionKey, SelectionKey.OP_READ);
+            }
             readCompletionHandler.failed(e, readAttachment);
         }
     }
 
+    /**
+     * 获取并清零读事件计数,仅限读Worker线程调用
+     */
+    int sampleReadEvents() {
+        int events = readEvents;
+        readEvents = 0;
+        return events;
+    }
+
+    /**
+     * 读事件的SelectionKey,尚未注册时为null
+     */
+    SelectionKey getReadSelectionKey() {
+        return readSelectionKey;
+    }
+
+    /**
+     * 写事件的SelectionKey,尚未注册时为null
+     */
+    SelectionKey getWriteSelectionKey() {
+        return writeSelectionKey;
+    }
+
+    /**
+     * 注册关注事件。threadPerCore模式下读写共用同一个SelectionKey,已注册时仅追加关注事件;
+     * 注册回调均在Worker线程中执行,无需同步
+     */
+    private SelectionKey register(Selector selector, int ops) throws ClosedChannelException {
+        SelectionKey key = unified ? channel.keyFor(selector) : null;
+        if (key == null) {
+            key = channel.register(selector, ops);
+            key.attach(this);
+        } else if (!key.isValid()) {
+            //连接已在其他线程中关闭
+            throw new ClosedChannelException();
+        } else {
+            key.interestOps(key.interestOps() | ops);
+        }
+        if (unified) {
+            readSelectionKey = key;
+            writeSelectionKey = key;
+        }
+        return key;
+    }
+
+    /**
+     * 指定待迁入的读Worker,迁移将在下一个安全点完成。仅限读Worker线程调用
+     */
+    boolean migrateTo(EnhanceAsynchronousChannelGroup.Worker target) {
+        if (!migratable || !readPending || !channel.isOpen()) {
+            return false;
+        }
+        migrateTarget = target;
+        return true;
+    }
+
+    /**
+     * 注销当前读Worker上的SelectionKey,由目标Worker重新注册读事件
+     */
+    private void migrate() {
+        EnhanceAsynchronousChannelGroup.Worker target = migrateTarget;
+        migrateTarget = null;
+        //暂存的写请求登记于当前Worker,迁移前须先输出
+        flushStaged();
+        readSelectionKey.cancel();
+        readSelectionKey = null;
+        readWorker.channelCount.decrementAndGet();
+        target.channelCount.incrementAndGet();
+        readWorker = target;
+        target.addRegister(readRegister);
+    }
+
     private void resetRead() {
         readPending = false;
         readFuture = null;
         readCompletionHandler = null;
         readAttachment = null;
         readBuffer = null;
-        readScattering = null;
+        if (readScattering != null) {
+            readScattering.clear();
+            readScattering = null;
+        }
+        readOnReady = false;
     }
 
     public void doWrite() {
+        if (writeQueue != null) {
+            flushWriteQueue();
+            return;
+        }
         try {
             //此前通过Future调用,且触发了cancel
             if (writeFuture != null && writeFuture.isDone()) {
                 resetWrite();
                 return;
             }
-            boolean directWrite = writeWorker.getWorkerThread() != Thread.currentThread()
-                    || writeInvoker.getAndIncrement() < EnhanceAsynchronousChannelGroup.MAX_INVOKER;
+            boolean workerThread = writeWorker.getWorkerThread() == Thread.currentThread();
+            boolean directWrite = !workerThread || writeWorker.acquire();
             long totalSize = 0;
             long writeSize;
             boolean hasRemain = true;
             while (directWrite && hasRemain) {
-                if (writeScattering != null) {
+                if (writeRegion != null) {
+                    writeSize = writeRegion.transferTo(channel);
+                    hasRemain = writeRegion.hasRemaining();
+                } else if (writeScattering != null) {
                     writeSize = channel.write(writeScattering.getBuffers(), writeScattering.getOffset(), writeScattering.getLength());
-                    hasRemain = hasRemaining(writeScattering);
+                    if (writeSize > 0) {
+                        writeScattering.advance(writeSize);
+                    }
+                    hasRemain = writeScattering.hasRemaining();
                 } else {
                     writeSize = channel.write(writeBuffer);
                     hasRemain = writeBuffer.hasRemaining();
@@ -386,47 +793,145 @@ final class EnhanceAsynchronousSocketChannel extends AsynchronousSocketChannel {
                 }
                 totalSize += writeSize;
             }
+            if (workerThread && totalSize > 0) {
+                writeWorker.consume(totalSize);
+            }
+            if (EnhanceAsynchronousChannelGroup.METRICS_ENABLED && totalSize > 0) {
+                writeWorker.metrics.bytesWritten.add(totalSize);
+            }
 
-            if (totalSize > 0 || !hasRemain) {
+            //文件传输须全部输出后才回调,部分输出时继续等待可写事件
+            if (writeRegion != null ? !hasRemain : (totalSize > 0 || !hasRemain)) {
                 CompletionHandler<Number, Object> completionHandler = writeCompletionHandler;
                 Object attach = writeAttachment;
                 Scattering scattering = writeScattering;
+                FileRegion region = writeRegion;
+                if (EnhanceAsynchronousChannelGroup.LATENCY_ENABLED) {
+                    writeWorker.writeLatency.record(System.nanoTime() - writeStartTime);
+                }
                 resetWrite();
-                if (scattering == null) {
+                if (region != null) {
+                    completionHandler.completed(region.getTransferred(), attach);
+                } else if (scattering == null) {
                     completionHandler.completed((int) totalSize, attach);
                 } else {
                     completionHandler.completed(totalSize, attach);
                 }
 
+            } else if (directWrite && writeRegion != null && writeRegion.suspended()) {
+                //文件数据尚未就绪,由writeResume继续输出
+                return;
             } else if (writeSelectionKey == null) {
-                writeInvoker.set(0);
-                writeWorker.addRegister(new WorkerRegister() {
-                    @Override
-                    public void callback(Selector selector) {
-                        try {
-                            writeSelectionKey = channel.register(selector, SelectionKey.OP_WRITE);
-                            writeSelectionKey.attach(EnhanceAsynchronousSocketChannel.this);
-                        } catch (ClosedChannelException e) {
-                            writeCompletionHandler.failed(e, writeAttachment);
-                        }
-                    }
-                });
+                writeWorker.addRegister(writeRegister);
             } else {
-                writeInvoker.set(0);
                 group.interestOps(writeWorker, writeSelectionKey, SelectionKey.OP_WRITE);
             }
         } catch (IOException e) {
+            if (writeRegion != null) {
+                writeRegion.release();
+            }
             writeCompletionHandler.failed(e, writeAttachment);
         }
     }
 
-    private boolean hasRemaining(Scattering scattering) {
-        for (int i = 0; i < scattering.getLength(); i++) {
-            if (scattering.getBuffers()[scattering.getOffset() + i].hasRemaining()) {
-                return true;
+    /**
+     * 输出暂存的写请求,仅限读Worker线程调用
+     */
+    void flushStaged() {
+        if (staged) {
+            staged = false;
+            flushWriteQueue();
+        }
+    }
+
+    /**
+     * 以gathering write输出写队列中的全部数据,并按提交顺序回调已输出完毕的请求。
+     * 同一时刻只有一个线程执行flush,其余线程的write仅入队;文件区间位于队首时单独输出
+     */
+    private void flushWriteQueue() {
+        try {
+            while (true) {
+                while (writeQueue.poll(false)) {
+                    completeWriteQueue();
+                }
+                FileRegion region = writeQueue.region();
+                if (region != null) {
+                    long size = region.transferTo(channel);
+                    if (EnhanceAsynchronousChannelGroup.METRICS_ENABLED && size > 0) {
+                        writeWorker.metrics.bytesWritten.add(size);
+                    }
+                    if (size > 0 || !region.hasRemaining()) {
+                        continue;
+                    }
+                    //socket缓冲区已满时等待可写事件,文件数据尚未就绪时由writeResume继续flush
+                    if (!region.suspended()) {
+                        awaitWritable();
+                    }
+                    return;
+                }
+                int n = writeQueue.gather();
+                if (n == 0) {
+                    if (writeQueue.finish()) {
+                        return;
+                    }
+                    continue;
+                }
+                ByteBuffer[] buffers = writeQueue.gatherBuffers();
+                long size = channel.write(buffers, 0, n);
+                if (EnhanceAsynchronousChannelGroup.METRICS_ENABLED && size > 0) {
+                    writeWorker.metrics.bytesWritten.add(size);
+                }
+                //socket缓冲区已满,等待可写事件
+                if (size == 0 || buffers[n - 1].hasRemaining()) {
+                    while (writeQueue.poll(false)) {
+                        completeWriteQueue();
+                    }
+                    awaitWritable();
+                    return;
+                }
             }
+        } catch (IOException e) {
+            failWriteQueue(e);
+        }
+    }
+
+    private void awaitWritable() {
+        if (writeSelectionKey == null) {
+            writeWorker.addRegister(writeRegister);
+        } else {
+            group.interestOps(writeWorker, writeSelectionKey, SelectionKey.OP_WRITE);
+        }
+    }
+
+    private void completeWriteQueue() {
+        if (EnhanceAsynchronousChannelGroup.LATENCY_ENABLED) {
+            writeWorker.writeLatency.record(System.nanoTime() - writeQueue.polledTime);
         }
-        return false;
+        CompletionHandler<Number, Object> completionHandler = writeQueue.polledHandler;
+        Object attach = writeQueue.polledAttachment;
+        long size = writeQueue.polledSize;
+        FileRegion region = writeQueue.polledRegion;
+        if (region != null) {
+            writeQueue.polledRegion = null;
+            region.release();
+            completionHandler.completed(region.getTransferred(), attach);
+        } else if (writeQueue.polledScattering) {
+            completionHandler.completed(size, attach);
+        } else {
+            completionHandler.completed((int) size, attach);
+        }
+    }
+
+    private void failWriteQueue(Throwable exc) {
+        do {
+            while (writeQueue.poll(true)) {
+                if (writeQueue.polledRegion != null) {
+                    writeQueue.polledRegion.release();
+                    writeQueue.polledRegion = null;
+                }
+                writeQueue.polledHandler.failed(exc, writeQueue.polledAttachment);
+            }
+        } while (!writeQueue.finish());
     }
 
     private void resetWrite() {
@@ -435,7 +940,14 @@ final class EnhanceAsynchronousSocketChannel extends AsynchronousSocketChannel {
         writeAttachment = null;
         writeCompletionHandler = null;
         writeBuffer = null;
-        writeScattering = null;
+        if (writeScattering != null) {
+            writeScattering.clear();
+            writeScattering = null;
+        }
+        if (writeRegion != null) {
+            writeRegion.release();
+            writeRegion = null;
+        }
     }
 
     @Override
@@ -0,0 +1,74 @@
+package org.smartboot.aio;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+
+/**
+ * 待输出的文件区间。socket缓冲区写满时记录已输出的进度,待可写事件触发后从断点继续
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+abstract class FileRegion {
+    final FileChannel file;
+    /**
+     * 下一个待输出字节在文件中的位置
+     */
+    long position;
+    private long remaining;
+    private long transferred;
+
+    FileRegion(FileChannel file, long position, long count) {
+        this.file = file;
+        this.position = position;
+        this.remaining = count;
+    }
+
+    /**
+     * 尽可能多地输出剩余数据
+     *
+     * @return 本次输出的字节数,为0表示socket缓冲区已满、数据尚未就绪或已到达文件末尾
+     */
+    final long transferTo(GatheringByteChannel target) throws IOException {
+        long size = write(target, remaining);
+        if (size > 0) {
+            position += size;
+            remaining -= size;
+            transferred += size;
+        } else if (position >= file.size()) {
+            //文件长度不足count,以实际输出的字节数结束本次传输
+            remaining = 0;
+        }
+        return size;
+    }
+
+    /**
+     * 自position起输出至多count字节
+     */
+    abstract long write(GatheringByteChannel target, long count) throws IOException;
+
+    /**
+     * 最近一次write是否因待输出的数据尚未就绪而返回0。此时不必等待可写事件,数据就绪后由实现类负责继续输出
+     */
+    boolean suspended() {
+        return false;
+    }
+
+    /**
+     * 传输结束或失败时释放所占用的资源
+     */
+    void release() {
+    }
+
+    final boolean hasRemaining() {
+        return remaining > 0;
+    }
+
+    /**
+     * 累计输出的字节数
+     */
+    final long getTransferred() {
+        return transferred;
+    }
+}
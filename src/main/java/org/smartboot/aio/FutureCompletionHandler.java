@@ -1,18 +1,38 @@
 package org.smartboot.aio;
 
 import java.nio.channels.CompletionHandler;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
 
-final class FutureCompletionHandler<V, A> implements CompletionHandler<V, A>, Future<V>, Runnable {
+/**
+ * 无锁实现的Future,完成、失败、取消与超时通过CAS竞争同一个状态,只有胜出的一方会触发回调。
+ * 阻塞于get的线程以Treiber栈的形式挂起,状态确定后统一unpark。
+ */
+final class FutureCompletionHandler<V, A> extends TimeoutTask implements CompletionHandler<V, A>, Future<V> {
+    private static final int NEW = 0;
+    private static final int COMPLETING = 1;
+    private static final int NORMAL = 2;
+    private static final int EXCEPTIONAL = 3;
+    private static final int CANCELLED = 4;
+    @SuppressWarnings("unchecked")
+    private static final Class<FutureCompletionHandler<?, ?>> TYPE = (Class<FutureCompletionHandler<?, ?>>) (Class<?>) FutureCompletionHandler.class;
+    private static final AtomicIntegerFieldUpdater<FutureCompletionHandler<?, ?>> STATUS_UPDATER = AtomicIntegerFieldUpdater.newUpdater(TYPE, "status");
+    private static final AtomicReferenceFieldUpdater<FutureCompletionHandler<?, ?>, WaitNode> WAITERS_UPDATER = AtomicReferenceFieldUpdater.newUpdater(TYPE, WaitNode.class, "waiters");
     private CompletionHandler<V, A> completionHandler;
     private A attach;
+    /**
+     * 执行结果,由status的volatile写发布
+     */
     private V result;
-    private boolean done = false;
-    private boolean cancel = false;
     private Throwable exception;
+    private volatile int status = NEW;
+    private volatile WaitNode waiters;
 
     public FutureCompletionHandler(CompletionHandler<V, A> completionHandler, A attach) {
         this.completionHandler = completionHandler;
@@ -22,13 +42,27 @@ final class FutureCompletionHandler<V, A> implements CompletionHandler<V, A>, Fu
     public FutureCompletionHandler() {
     }
 
+    /**
+     * 重置状态以便复用,仅适用于未暴露给外部的超时回调
+     */
+    void reset(CompletionHandler<V, A> completionHandler, A attach) {
+        this.completionHandler = completionHandler;
+        this.attach = attach;
+        this.result = null;
+        this.exception = null;
+        this.waiters = null;
+        this.status = NEW;
+    }
+
     @Override
     public void completed(V result, A selectionKey) {
-        this.result = result;
-        done = true;
-        synchronized (this) {
-            this.notify();
+        cancelTimeout();
+        if (!STATUS_UPDATER.compareAndSet(this, NEW, COMPLETING)) {
+            return;
         }
+        this.result = result;
+        status = NORMAL;
+        finishCompletion();
         if (completionHandler != null) {
             completionHandler.completed(result, attach);
         }
@@ -36,67 +70,164 @@ final class FutureCompletionHandler<V, A> implements CompletionHandler<V, A>, Fu
 
     @Override
     public void failed(Throwable exc, A attachment) {
+        cancelTimeout();
+        if (!STATUS_UPDATER.compareAndSet(this, NEW, COMPLETING)) {
+            return;
+        }
         exception = exc;
-        done = true;
+        status = EXCEPTIONAL;
+        finishCompletion();
         if (completionHandler != null) {
-            completionHandler.failed(exc, attachment);
+            completionHandler.failed(exc, attach);
         }
     }
 
     @Override
     public boolean cancel(boolean mayInterruptIfRunning) {
-        if (done || cancel) {
+        if (!STATUS_UPDATER.compareAndSet(this, NEW, CANCELLED)) {
             return false;
         }
-        cancel = true;
-        done = true;
-        synchronized (this) {
-            notify();
-        }
+        cancelTimeout();
+        finishCompletion();
         return true;
     }
 
     @Override
     public boolean isCancelled() {
-        return cancel;
+        return status == CANCELLED;
     }
 
     @Override
     public boolean isDone() {
-        return done;
+        return status != NEW;
     }
 
     @Override
-    public synchronized V get() throws InterruptedException, ExecutionException {
-        if (done) {
-            if (exception != null) {
-                throw new ExecutionException(exception);
-            }
-            return result;
-        } else {
-            wait();
+    public V get() throws InterruptedException, ExecutionException {
+        int s = status;
+        if (s <= COMPLETING) {
+            s = awaitDone(false, 0L);
         }
-        return get();
+        return report(s);
     }
 
     @Override
-    public synchronized V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
-        if (done) {
-            return get();
-        } else {
-            wait(unit.toMillis(timeout));
-        }
-        if (done) {
-            return get();
+    public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        int s = status;
+        if (s <= COMPLETING && (s = awaitDone(true, unit.toNanos(timeout))) <= COMPLETING) {
+            throw new TimeoutException();
         }
-        throw new TimeoutException();
+        return report(s);
     }
 
+    /**
+     * 超时触发
+     */
     @Override
-    public synchronized void run() {
-        if (!done) {
-            cancel(true);
+    public void run() {
+        if (!STATUS_UPDATER.compareAndSet(this, NEW, CANCELLED)) {
+            return;
+        }
+        finishCompletion();
+        if (completionHandler != null) {
             completionHandler.failed(new TimeoutException(), attach);
         }
     }
+
+    private V report(int s) throws ExecutionException {
+        if (s == NORMAL) {
+            return result;
+        }
+        if (s == CANCELLED) {
+            throw new CancellationException();
+        }
+        throw new ExecutionException(exception);
+    }
+
+    /**
+     * 唤醒所有等待结果的线程
+     */
+    private void finishCompletion() {
+        WaitNode q;
+        while ((q = waiters) != null) {
+            if (WAITERS_UPDATER.compareAndSet(this, q, null)) {
+                while (q != null) {
+                    Thread t = q.thread;
+                    if (t != null) {
+                        q.thread = null;
+                        LockSupport.unpark(t);
+                    }
+                    q = q.next;
+                }
+                break;
+            }
+        }
+    }
+
+    private int awaitDone(boolean timed, long nanos) throws InterruptedException {
+        final long deadline = timed ? System.nanoTime() + nanos : 0L;
+        WaitNode q = null;
+        boolean queued = false;
+        for (; ; ) {
+            if (Thread.interrupted()) {
+                removeWaiter(q);
+                throw new InterruptedException();
+            }
+            int s = status;
+            if (s > COMPLETING) {
+                if (q != null) {
+                    q.thread = null;
+                }
+                return s;
+            } else if (s == COMPLETING) {
+                Thread.yield();
+            } else if (q == null) {
+                q = new WaitNode();
+            } else if (!queued) {
+                q.next = waiters;
+                queued = WAITERS_UPDATER.compareAndSet(this, q.next, q);
+            } else if (timed) {
+                nanos = deadline - System.nanoTime();
+                if (nanos <= 0L) {
+                    removeWaiter(q);
+                    return status;
+                }
+                LockSupport.parkNanos(this, nanos);
+            } else {
+                LockSupport.park(this);
+            }
+        }
+    }
+
+    /**
+     * 移除超时或被中断的等待节点
+     */
+    private void removeWaiter(WaitNode node) {
+        if (node == null) {
+            return;
+        }
+        node.thread = null;
+        retry:
+        for (; ; ) {
+            for (WaitNode pred = null, q = waiters, s; q != null; q = s) {
+                s = q.next;
+                if (q.thread != null) {
+                    pred = q;
+                } else if (pred != null) {
+                    pred.next = s;
+                    if (pred.thread == null) {
+                        continue retry;
+                    }
+                } else if (!WAITERS_UPDATER.compareAndSet(this, q, s)) {
+                    continue retry;
+                }
+            }
+            break;
+        }
+    }
+
+    private static final class WaitNode {
+        volatile Thread thread = Thread.currentThread();
+        volatile WaitNode next;
+    }
 }
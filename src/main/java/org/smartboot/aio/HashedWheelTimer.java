@@ -0,0 +1,186 @@
+package org.smartboot.aio;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单线程时间轮,由所属Worker线程驱动。
+ * Worker线程内的调度与取消直接操作槽位链表,时间复杂度O(1);其他线程的请求经由队列转交Worker线程处理。
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+final class HashedWheelTimer {
+    /**
+     * 时间轮槽位数,须为2的幂
+     */
+    private static final int WHEEL_SIZE = 512;
+    /**
+     * 每一格的时长
+     */
+    private final long tickNanos;
+    private final TimeoutTask[] wheel = new TimeoutTask[WHEEL_SIZE];
+    private final int mask = WHEEL_SIZE - 1;
+    private final long startTime = System.nanoTime();
+    /**
+     * 其他线程提交的待调度任务
+     */
+    private final ConcurrentLinkedQueue<TimeoutTask> pendingTasks = new ConcurrentLinkedQueue<>();
+    /**
+     * 其他线程取消的任务
+     */
+    private final ConcurrentLinkedQueue<TimeoutTask> cancelledTasks = new ConcurrentLinkedQueue<>();
+    /**
+     * 驱动时间轮的线程
+     */
+    private Thread ownerThread;
+    /**
+     * 下一个待处理的刻度
+     */
+    private long tick;
+    /**
+     * 已链入时间轮的任务数
+     */
+    private int size;
+
+    HashedWheelTimer(long tickMillis) {
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+    }
+
+    void setOwnerThread(Thread ownerThread) {
+        this.ownerThread = ownerThread;
+    }
+
+    /**
+     * 调度超时任务,可由任意线程调用
+     *
+     * @return 是否由其他线程提交,若是则需要确保Worker线程能及时感知
+     */
+    boolean schedule(TimeoutTask task, long timeout, TimeUnit unit) {
+        task.timer = this;
+        task.deadline = System.nanoTime() + unit.toNanos(timeout);
+        task.state(TimeoutTask.ST_SCHEDULED);
+        if (Thread.currentThread() == ownerThread) {
+            link(task);
+            return false;
+        }
+        pendingTasks.offer(task);
+        return true;
+    }
+
+    void cancel(TimeoutTask task) {
+        if (Thread.currentThread() == ownerThread) {
+            unlink(task);
+        } else {
+            cancelledTasks.offer(task);
+        }
+    }
+
+    /**
+     * 时间轮中是否存在待触发的任务
+     */
+    boolean isEmpty() {
+        return size == 0 && pendingTasks.isEmpty();
+    }
+
+    /**
+     * 推进时间轮并执行已到期的任务,仅限Worker线程调用
+     *
+     * @return 本次触发的任务数
+     */
+    int expire() {
+        TimeoutTask task;
+        while ((task = cancelledTasks.poll()) != null) {
+            //已被重新调度的任务无需移除
+            if (task.state() != TimeoutTask.ST_SCHEDULED) {
+                unlink(task);
+            }
+        }
+        while ((task = pendingTasks.poll()) != null) {
+            if (task.state() == TimeoutTask.ST_SCHEDULED) {
+                link(task);
+            }
+        }
+        if (size == 0) {
+            tick = currentTick();
+            return 0;
+        }
+        long now = System.nanoTime();
+        //已完整走过的刻度
+        long lastTick = (now - startTime) / tickNanos - 1;
+        if (lastTick - tick >= WHEEL_SIZE) {
+            tick = lastTick - WHEEL_SIZE + 1;
+        }
+        int expired = 0;
+        while (tick <= lastTick) {
+            expired += expireBucket((int) (tick & mask), now);
+            tick++;
+        }
+        //当前刻度尚未走完,其中已到期的任务同样触发,不必等待下一刻度
+        if (wheel[(int) (tick & mask)] != null) {
+            expired += expireBucket((int) (tick & mask), now);
+        }
+        return expired;
+    }
+
+    private int expireBucket(int index, long now) {
+        int expired = 0;
+        TimeoutTask task = wheel[index];
+        while (task != null) {
+            TimeoutTask next = task.next;
+            if (task.deadline - now <= 0) {
+                unlink(task);
+                if (task.compareAndSetState(TimeoutTask.ST_SCHEDULED, TimeoutTask.ST_EXPIRED)) {
+                    expired++;
+                    try {
+                        task.run();
+                    } catch (Throwable e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+            //回调中可能取消了后继任务,此时从槽位头部重新遍历
+            task = (next == null || next.bucket == index) ? next : wheel[index];
+        }
+        return expired;
+    }
+
+    private long currentTick() {
+        return (System.nanoTime() - startTime) / tickNanos;
+    }
+
+    private void link(TimeoutTask task) {
+        if (task.bucket >= 0) {
+            unlink(task);
+        }
+        long deadlineTick = (task.deadline - startTime) / tickNanos;
+        int index = (int) (Math.max(deadlineTick, tick) & mask);
+        TimeoutTask head = wheel[index];
+        task.prev = null;
+        task.next = head;
+        if (head != null) {
+            head.prev = task;
+        }
+        wheel[index] = task;
+        task.bucket = index;
+        size++;
+    }
+
+    private void unlink(TimeoutTask task) {
+        if (task.bucket < 0) {
+            return;
+        }
+        if (task.prev == null) {
+            wheel[task.bucket] = task.next;
+        } else {
+            task.prev.next = task.next;
+        }
+        if (task.next != null) {
+            task.next.prev = task.prev;
+        }
+        task.prev = null;
+        task.next = null;
+        task.bucket = -1;
+        size--;
+    }
+}
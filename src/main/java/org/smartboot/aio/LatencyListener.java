@@ -0,0 +1,19 @@
+package org.smartboot.aio;
+
+import java.util.List;
+
+/**
+ * 延迟直方图的定期接收方,由 -Dorg.smartboot.aio.latencyListener 指定实现类,需提供无参构造方法。
+ * 每隔 org.smartboot.aio.latencyInterval 秒回调一次,回调抛出异常将终止后续的定期回调
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+public interface LatencyListener {
+    /**
+     * 在group的延迟采集线程中回调
+     *
+     * @param snapshots 各Worker自上一次回调以来的区间快照,不含无记录的快照
+     */
+    void onSnapshot(List<LatencySnapshot> snapshots);
+}
@@ -0,0 +1,76 @@
+package org.smartboot.aio;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 对数线性分桶的延迟直方图:每个2的幂区间再均分为16个子桶,相对误差不超过1/16。
+ * 桶数组在创建时一次性分配,记录过程仅做一次原子自增,不产生内存分配,可由任意线程调用。
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+final class LatencyRecorder {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_MASK = SUB_BUCKET_COUNT - 1;
+    /**
+     * 覆盖全部非负long取值所需的桶数
+     */
+    static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    /**
+     * 上一次生成快照时的计数,用于计算区间增量
+     */
+    private final long[] lastCounts = new long[BUCKET_COUNT];
+    private long lastSnapshotTime = System.nanoTime();
+
+    LatencyRecorder(String name) {
+        this.name = name;
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return value < 0 ? 0 : (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) & SUB_BUCKET_MASK);
+    }
+
+    /**
+     * 桶内可表示的最大值
+     */
+    static long highestValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        long sub = SUB_BUCKET_COUNT + (index & SUB_BUCKET_MASK);
+        return ((sub + 1) << shift) - 1;
+    }
+
+    /**
+     * 记录一次耗时
+     *
+     * @param nanos 纳秒
+     */
+    void record(long nanos) {
+        counts.getAndIncrement(index(nanos));
+    }
+
+    /**
+     * 生成自上一次调用以来的区间快照
+     */
+    synchronized LatencySnapshot intervalSnapshot() {
+        long[] interval = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = counts.get(i);
+            interval[i] = count - lastCounts[i];
+            lastCounts[i] = count;
+        }
+        long now = System.nanoTime();
+        LatencySnapshot snapshot = new LatencySnapshot(name, now - lastSnapshotTime, interval);
+        lastSnapshotTime = now;
+        return snapshot;
+    }
+}
@@ -0,0 +1,86 @@
+package org.smartboot.aio;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 延迟直方图在某一区间内的快照,单位纳秒。百分位取所在桶可表示的最大值,相对误差不超过1/16
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+public final class LatencySnapshot {
+    private final String name;
+    private final long intervalNanos;
+    private final long[] counts;
+    private final long totalCount;
+
+    LatencySnapshot(String name, long intervalNanos, long[] counts) {
+        this.name = name;
+        this.intervalNanos = intervalNanos;
+        this.counts = counts;
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        this.totalCount = total;
+    }
+
+    /**
+     * 指标名称,格式为 Worker名称.指标类型,如 read-0.readiness、read-0.handler、write-0.write
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 快照覆盖的时间区间
+     */
+    public long getIntervalNanos() {
+        return intervalNanos;
+    }
+
+    /**
+     * 区间内的记录数
+     */
+    public long getCount() {
+        return totalCount;
+    }
+
+    /**
+     * 指定百分位的耗时
+     *
+     * @param percentile 0~100
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(totalCount * Math.min(percentile, 100) / 100));
+        long count = 0;
+        for (int i = 0; i < counts.length; i++) {
+            count += counts[i];
+            if (count >= target) {
+                return LatencyRecorder.highestValue(i);
+            }
+        }
+        return getMax();
+    }
+
+    public long getMax() {
+        for (int i = counts.length - 1; i >= 0; i--) {
+            if (counts[i] > 0) {
+                return LatencyRecorder.highestValue(i);
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        return name + " count=" + totalCount
+                + " p50=" + TimeUnit.NANOSECONDS.toMicros(getValueAtPercentile(50)) + "us"
+                + " p99=" + TimeUnit.NANOSECONDS.toMicros(getValueAtPercentile(99)) + "us"
+                + " p999=" + TimeUnit.NANOSECONDS.toMicros(getValueAtPercentile(99.9)) + "us"
+                + " max=" + TimeUnit.NANOSECONDS.toMicros(getMax()) + "us";
+    }
+}
@@ -0,0 +1,265 @@
+package org.smartboot.aio;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 以内存映射窗口流式输出文件。文件按窗口大小分段映射,当前窗口输出期间由预取线程映射下一窗口并预先触发缺页,
+ * 下一窗口就绪后与当前窗口合并为一次gathering write;窗口输出完毕即刻解除映射,不必等待GC回收。
+ * 首个窗口同样由预取线程映射。待输出的窗口尚未就绪时write返回0,写线程不等待映射完成,由预取任务完成时触发resume继续输出。
+ * 除预取任务外,其余方法仅由执行写操作的线程调用
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+final class MappedFileRegion extends FileRegion {
+    /**
+     * JDK9及以上通过Unsafe.invokeCleaner解除映射
+     */
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+    /**
+     * JDK8通过DirectBuffer.cleaner().clean()解除映射
+     */
+    private static final Method CLEANER;
+    private static final Method CLEAN;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        Method cleaner = null;
+        Method clean = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+        } catch (Exception e) {
+            invokeCleaner = null;
+            try {
+                cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+                clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            } catch (Exception ignored) {
+                //无法主动解除映射,由GC回收
+                cleaner = null;
+            }
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+        CLEANER = cleaner;
+        CLEAN = clean;
+    }
+
+    private final ExecutorService prefetchExecutor;
+    /**
+     * 写线程等待的窗口映射完成后回调,用于继续输出
+     */
+    private final Runnable resume;
+    private final int windowSize;
+    /**
+     * 映射区间的结束位置
+     */
+    private final long end;
+    private final ByteBuffer[] windows = new ByteBuffer[2];
+    /**
+     * 下一个待映射窗口的起始位置
+     */
+    private long mapPosition;
+    private MappedByteBuffer current;
+    private FutureTask<MappedByteBuffer> prefetch;
+    /**
+     * 写线程正在等待prefetch完成,由写线程与预取任务竞争清除,清除成功的预取任务负责触发resume
+     */
+    private final AtomicBoolean waiting = new AtomicBoolean();
+    private boolean suspended;
+    private volatile boolean released;
+
+    MappedFileRegion(FileChannel file, long position, long count, ExecutorService prefetchExecutor, int windowSize, Runnable resume) {
+        super(file, position, count);
+        this.prefetchExecutor = prefetchExecutor;
+        this.resume = resume;
+        this.windowSize = windowSize;
+        this.end = position + count;
+        this.mapPosition = position;
+    }
+
+    @Override
+    long write(GatheringByteChannel target, long count) throws IOException {
+        suspended = false;
+        if (current == null) {
+            //首个窗口,或当前窗口输出完毕时下一窗口尚未就绪
+            if (prefetch == null) {
+                prefetch();
+            }
+            if (prefetch == null) {
+                return 0;
+            }
+            //先于登记等待写入,resume触发的写线程可见
+            suspended = true;
+            if (!ready()) {
+                return 0;
+            }
+            suspended = false;
+            current = take();
+            if (current == null) {
+                return 0;
+            }
+            prefetch();
+        }
+        windows[0] = current;
+        int length = 1;
+        if (prefetch != null && prefetch.isDone()) {
+            windows[1] = await(prefetch);
+            length = windows[1] == null ? 1 : 2;
+        }
+        long size = target.write(windows, 0, length);
+        windows[0] = windows[1] = null;
+        if (!current.hasRemaining()) {
+            unmap(current);
+            current = null;
+            //下一窗口已参与本次输出,直接接替为当前窗口
+            if (length == 2) {
+                current = take();
+                prefetch();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 预取是否已完成,未完成时登记等待,由预取任务完成时触发resume
+     */
+    private boolean ready() {
+        if (prefetch.isDone()) {
+            return true;
+        }
+        waiting.set(true);
+        //登记期间预取恰好完成,且预取任务未观察到登记,由写线程继续输出
+        return prefetch.isDone() && waiting.compareAndSet(true, false);
+    }
+
+    @Override
+    boolean suspended() {
+        return suspended;
+    }
+
+    /**
+     * 取出已完成预取的下一窗口
+     */
+    private MappedByteBuffer take() throws IOException {
+        MappedByteBuffer buffer = await(prefetch);
+        prefetch = null;
+        return buffer;
+    }
+
+    /**
+     * 提交下一窗口的映射任务,线程池不可用时退化为在写线程中映射
+     */
+    private void prefetch() throws IOException {
+        final long offset = mapPosition;
+        final long size = Math.min(windowSize, Math.min(end, file.size()) - offset);
+        if (size <= 0) {
+            return;
+        }
+        mapPosition += size;
+        FutureTask<MappedByteBuffer> task = new FutureTask<MappedByteBuffer>(new Callable<MappedByteBuffer>() {
+            @Override
+            public MappedByteBuffer call() throws IOException {
+                MappedByteBuffer buffer = file.map(FileChannel.MapMode.READ_ONLY, offset, size);
+                //预先触发缺页,避免写线程在输出时阻塞于磁盘IO
+                buffer.load();
+                if (released) {
+                    unmap(buffer);
+                    return null;
+                }
+                return buffer;
+            }
+        }) {
+            @Override
+            protected void done() {
+                if (waiting.compareAndSet(true, false)) {
+                    resume.run();
+                }
+            }
+        };
+        try {
+            prefetchExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+        prefetch = task;
+    }
+
+    private static MappedByteBuffer await(FutureTask<MappedByteBuffer> task) throws IOException {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return task.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    void release() {
+        released = true;
+        waiting.set(false);
+        if (current != null) {
+            unmap(current);
+            current = null;
+        }
+        if (prefetch != null) {
+            if (prefetch.isDone()) {
+                try {
+                    unmap(await(prefetch));
+                } catch (IOException ignored) {
+                }
+            } else {
+                prefetch.cancel(false);
+            }
+            prefetch = null;
+        }
+    }
+
+    private static void unmap(ByteBuffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+        try {
+            if (INVOKE_CLEANER != null) {
+                INVOKE_CLEANER.invoke(UNSAFE, buffer);
+            } else if (CLEANER != null) {
+                Object cleaner = CLEANER.invoke(buffer);
+                if (cleaner != null) {
+                    CLEAN.invoke(cleaner);
+                }
+            }
+        } catch (Exception ignored) {
+        }
+    }
+}
@@ -4,16 +4,81 @@ import java.nio.ByteBuffer;
 
 /**
  * Scattering read or write
+ * <p>
+ * 可变游标:每次读写后跳过已处理完毕的buffer,并记录剩余字节数,
+ * 避免在buffer数量较多时每次系统调用都从offset起重复扫描。同一连接的读写各复用一个实例
  */
 final class Scattering {
-    private final ByteBuffer[] buffers;
-    private final int offset;
-    private final int length;
+    private ByteBuffer[] buffers;
+    private int offset;
+    private int length;
+    /**
+     * 剩余待读写的字节数
+     */
+    private long remaining;
 
-    public Scattering(ByteBuffer[] buffers, int offset, int length) {
+    Scattering() {
+    }
+
+    Scattering(ByteBuffer[] buffers, int offset, int length) {
+        reset(buffers, offset, length);
+    }
+
+    /**
+     * 指向新的buffer数组
+     */
+    Scattering reset(ByteBuffer[] buffers, int offset, int length) {
+        if ((offset | length | (buffers.length - offset - length)) < 0) {
+            throw new IndexOutOfBoundsException();
+        }
+        long remaining = 0;
+        for (int i = offset; i < offset + length; i++) {
+            remaining += buffers[i].remaining();
+        }
         this.buffers = buffers;
         this.offset = offset;
         this.length = length;
+        this.remaining = remaining;
+        return this;
+    }
+
+    /**
+     * 释放对buffer数组的引用
+     */
+    void clear() {
+        buffers = null;
+        offset = 0;
+        length = 0;
+        remaining = 0;
+    }
+
+    /**
+     * 完成size字节的读写后前移游标
+     */
+    void advance(long size) {
+        remaining -= size;
+        skip();
+    }
+
+    /**
+     * 跳过起始处已处理完毕的buffer
+     *
+     * @return 是否仍有未处理完毕的buffer
+     */
+    boolean skip() {
+        while (length > 0 && !buffers[offset].hasRemaining()) {
+            offset++;
+            length--;
+        }
+        return length > 0;
+    }
+
+    boolean hasRemaining() {
+        return remaining > 0;
+    }
+
+    long remaining() {
+        return remaining;
     }
 
     public ByteBuffer[] getBuffers() {
@@ -27,4 +92,4 @@ final class Scattering {
     public int getLength() {
         return length;
     }
-}
\ No newline at end of file
+}
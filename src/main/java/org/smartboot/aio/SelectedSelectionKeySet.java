@@ -0,0 +1,120 @@
+package org.smartboot.aio;
+
+import java.lang.reflect.Field;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 以数组实现的selectedKeys,通过反射替换Selector内部的HashSet。
+ * select仅调用add,Worker按下标遍历后整体重置,避免迭代器分配及哈希运算。
+ * JDK9及以上须开启 --add-opens java.base/sun.nio.ch=ALL-UNNAMED,替换失败时沿用Selector原有的实现
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+final class SelectedSelectionKeySet extends AbstractSet<SelectionKey> {
+    /**
+     * 替换失败的原因只需输出一次
+     */
+    private static volatile boolean warned;
+    SelectionKey[] keys = new SelectionKey[1024];
+    int size;
+
+    /**
+     * 将selector的selectedKeys替换为数组实现
+     *
+     * @return 替换失败返回null
+     */
+    static SelectedSelectionKeySet replace(Selector selector) {
+        SelectedSelectionKeySet keySet = new SelectedSelectionKeySet();
+        try {
+            Class<?> selectorImplClass = Class.forName("sun.nio.ch.SelectorImpl", false, ClassLoader.getSystemClassLoader());
+            if (!selectorImplClass.isInstance(selector)) {
+                return null;
+            }
+            Field selectedKeysField = selectorImplClass.getDeclaredField("selectedKeys");
+            Field publicSelectedKeysField = selectorImplClass.getDeclaredField("publicSelectedKeys");
+            selectedKeysField.setAccessible(true);
+            publicSelectedKeysField.setAccessible(true);
+            selectedKeysField.set(selector, keySet);
+            publicSelectedKeysField.set(selector, keySet);
+            return keySet;
+        } catch (Throwable e) {
+            if (!warned) {
+                warned = true;
+                System.err.println("optimize selectedKeys fail, " + e);
+            }
+            return null;
+        }
+    }
+
+    @Override
+    public boolean add(SelectionKey selectionKey) {
+        if (selectionKey == null) {
+            return false;
+        }
+        if (size == keys.length) {
+            SelectionKey[] newKeys = new SelectionKey[size << 1];
+            System.arraycopy(keys, 0, newKeys, 0, size);
+            keys = newKeys;
+        }
+        keys[size++] = selectionKey;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return false;
+    }
+
+    /**
+     * 每轮处理完毕即重置,同一轮select中不会重复添加,无需遍历判断
+     */
+    @Override
+    public boolean contains(Object o) {
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<SelectionKey> iterator() {
+        return new Iterator<SelectionKey>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            public SelectionKey next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return keys[index++];
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * 清空已处理的key
+     */
+    void reset() {
+        for (int i = 0; i < size; i++) {
+            keys[i] = null;
+        }
+        size = 0;
+    }
+}
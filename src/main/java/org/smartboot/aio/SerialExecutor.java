@@ -0,0 +1,71 @@
+package org.smartboot.aio;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 连接级串行执行器:提交至同一实例的任务按提交顺序依次执行,且同一时刻至多占用底层线程池的一个线程。
+ * 执行器自身即为提交至线程池的任务,无需为每次调度分配对象;单次调度最多执行 MAX_BATCH 个任务后让出线程,
+ * 避免个别繁忙连接长期独占线程池
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+final class SerialExecutor implements Executor, Runnable {
+    private static final int MAX_BATCH = 16;
+    private final Executor executor;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    /**
+     * 是否已提交至线程池或正在执行
+     */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    SerialExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        tasks.offer(task);
+        schedule();
+    }
+
+    private void schedule() {
+        while (scheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this);
+                return;
+            } catch (RejectedExecutionException e) {
+                //线程池已关闭或队列已满,由调用方线程执行,以此对提交方形成背压
+                drain();
+            }
+            if (tasks.isEmpty()) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        drain();
+        if (!tasks.isEmpty()) {
+            schedule();
+        }
+    }
+
+    private void drain() {
+        int batch = MAX_BATCH;
+        Runnable task;
+        while (batch-- > 0 && (task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                e.printStackTrace();
+            }
+        }
+        scheduled.set(false);
+    }
+}
@@ -0,0 +1,257 @@
+package org.smartboot.aio;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.channels.AcceptPendingException;
+import java.nio.channels.AsynchronousServerSocketChannel;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 分片监听的服务端:为每个accept Worker打开一个启用SO_REUSEPORT的ServerSocketChannel并绑定至同一地址,
+ * 由内核将新建连接分摊至各分片,对外仍表现为单个AsynchronousServerSocketChannel。
+ * <p>
+ * 对外仅有一个挂起的accept请求,每次accept只回调一次。请求挂起期间各空闲分片均开始接入,
+ * 由最先接入连接的分片完成回调;其余分片接入的连接暂存,交由后续的accept直接完成,此时回调在发起accept的线程中执行。
+ * Future方式与CompletionHandler方式共用同一挂起位
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+final class ShardedAsynchronousServerSocketChannel extends AsynchronousServerSocketChannel {
+    /**
+     * StandardSocketOptions.SO_REUSEPORT 自JDK9起提供,低版本为null
+     */
+    private static final SocketOption<?> SO_REUSEPORT;
+
+    static {
+        SocketOption<?> option = null;
+        try {
+            option = (SocketOption<?>) StandardSocketOptions.class.getField("SO_REUSEPORT").get(null);
+        } catch (Exception ignored) {
+        }
+        SO_REUSEPORT = option;
+    }
+
+    private final EnhanceAsynchronousServerSocketChannel[] shards;
+    /**
+     * 挂起中的accept请求
+     */
+    private final AtomicReference<PendingAccept<?>> waiting = new AtomicReference<>();
+    /**
+     * 无挂起请求时各分片接入的连接
+     */
+    private final ConcurrentLinkedQueue<AsynchronousSocketChannel> ready = new ConcurrentLinkedQueue<>();
+    /**
+     * 各分片共用的回调,接入的连接先行暂存,再交付给挂起的请求
+     */
+    private final CompletionHandler<AsynchronousSocketChannel, Object> acceptor = new CompletionHandler<AsynchronousSocketChannel, Object>() {
+        @Override
+        public void completed(AsynchronousSocketChannel result, Object attachment) {
+            ready.offer(result);
+            dispatch();
+        }
+
+        @Override
+        public void failed(Throwable exc, Object attachment) {
+            PendingAccept<?> pending = waiting.getAndSet(null);
+            if (pending != null) {
+                pending.failed(exc);
+            }
+        }
+    };
+
+    ShardedAsynchronousServerSocketChannel(EnhanceAsynchronousChannelGroup enhanceAsynchronousChannelGroup) throws IOException {
+        super(enhanceAsynchronousChannelGroup.provider());
+        EnhanceAsynchronousChannelGroup.Worker[] acceptWorkers = enhanceAsynchronousChannelGroup.getAcceptWorkers();
+        EnhanceAsynchronousServerSocketChannel first = new EnhanceAsynchronousServerSocketChannel(enhanceAsynchronousChannelGroup, acceptWorkers[0]);
+        int shardNum = acceptWorkers.length;
+        if (SO_REUSEPORT == null || !first.supportedOptions().contains(SO_REUSEPORT)) {
+            System.err.println("SO_REUSEPORT is not supported, fall back to a single accept shard");
+            shardNum = 1;
+        }
+        shards = new EnhanceAsynchronousServerSocketChannel[shardNum];
+        shards[0] = first;
+        try {
+            for (int i = 1; i < shardNum; i++) {
+                shards[i] = new EnhanceAsynchronousServerSocketChannel(enhanceAsynchronousChannelGroup, acceptWorkers[i]);
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public AsynchronousServerSocketChannel bind(SocketAddress local, int backlog) throws IOException {
+        if (shards.length > 1) {
+            for (EnhanceAsynchronousServerSocketChannel shard : shards) {
+                enable(shard, SO_REUSEPORT);
+            }
+        }
+        shards[0].bind(local, backlog);
+        //未指定端口时由首个分片确定实际端口,其余分片绑定至同一地址
+        SocketAddress address = shards[0].getLocalAddress();
+        for (int i = 1; i < shards.length; i++) {
+            shards[i].bind(address, backlog);
+        }
+        return this;
+    }
+
+    /**
+     * 开启布尔类型的选项,以选项声明的类型转换取值
+     */
+    private static <T> void enable(EnhanceAsynchronousServerSocketChannel shard, SocketOption<T> option) throws IOException {
+        shard.setOption(option, option.type().cast(Boolean.TRUE));
+    }
+
+    @Override
+    public <T> AsynchronousServerSocketChannel setOption(SocketOption<T> name, T value) throws IOException {
+        for (EnhanceAsynchronousServerSocketChannel shard : shards) {
+            shard.setOption(name, value);
+        }
+        return this;
+    }
+
+    @Override
+    public <T> T getOption(SocketOption<T> name) throws IOException {
+        return shards[0].getOption(name);
+    }
+
+    @Override
+    public Set<SocketOption<?>> supportedOptions() {
+        return shards[0].supportedOptions();
+    }
+
+    @Override
+    public <A> void accept(A attachment, CompletionHandler<AsynchronousSocketChannel, ? super A> handler) {
+        if (shards.length == 1) {
+            shards[0].accept(attachment, handler);
+            return;
+        }
+        PendingAccept<A> pending = new PendingAccept<>(handler, attachment);
+        PendingAccept<?> current;
+        do {
+            current = waiting.get();
+            //已取消的Future不再占用挂起位
+            if (current != null && !current.isCancelled()) {
+                throw new AcceptPendingException();
+            }
+        } while (!waiting.compareAndSet(current, pending));
+        //优先交付暂存的连接
+        dispatch();
+        if (waiting.get() != pending) {
+            return;
+        }
+        for (EnhanceAsynchronousServerSocketChannel shard : shards) {
+            if (shard.isAcceptPending()) {
+                continue;
+            }
+            try {
+                shard.accept(null, acceptor);
+            } catch (AcceptPendingException ignored) {
+                //其他线程已重新挂起该分片
+            }
+        }
+    }
+
+    /**
+     * 将暂存的连接交付给挂起的请求。暂存与挂起可能同时发生于不同线程,二者完成后均需检查
+     */
+    private void dispatch() {
+        while (!ready.isEmpty()) {
+            PendingAccept<?> pending = waiting.getAndSet(null);
+            if (pending == null) {
+                return;
+            }
+            if (pending.isCancelled()) {
+                continue;
+            }
+            AsynchronousSocketChannel channel = ready.poll();
+            if (channel == null) {
+                //暂存的连接已因关闭被取走,归还挂起位
+                waiting.compareAndSet(null, pending);
+                return;
+            }
+            pending.completed(channel);
+            return;
+        }
+    }
+
+    @Override
+    public Future<AsynchronousSocketChannel> accept() {
+        FutureCompletionHandler<AsynchronousSocketChannel, Void> acceptFuture = new FutureCompletionHandler<>();
+        accept(null, acceptFuture);
+        return acceptFuture;
+    }
+
+    /**
+     * 挂起的accept请求及其附件
+     */
+    private static final class PendingAccept<A> {
+        private final CompletionHandler<AsynchronousSocketChannel, ? super A> handler;
+        private final A attachment;
+
+        PendingAccept(CompletionHandler<AsynchronousSocketChannel, ? super A> handler, A attachment) {
+            this.handler = handler;
+            this.attachment = attachment;
+        }
+
+        /**
+         * Future方式发起且已被取消
+         */
+        boolean isCancelled() {
+            return handler instanceof FutureCompletionHandler && ((FutureCompletionHandler<?, ?>) handler).isDone();
+        }
+
+        void completed(AsynchronousSocketChannel channel) {
+            handler.completed(channel, attachment);
+        }
+
+        void failed(Throwable exc) {
+            handler.failed(exc, attachment);
+        }
+    }
+
+    @Override
+    public SocketAddress getLocalAddress() throws IOException {
+        return shards[0].getLocalAddress();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return shards[0].isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException exception = null;
+        for (EnhanceAsynchronousServerSocketChannel shard : shards) {
+            if (shard == null) {
+                continue;
+            }
+            try {
+                shard.close();
+            } catch (IOException e) {
+                exception = e;
+            }
+        }
+        AsynchronousSocketChannel channel;
+        while ((channel = ready.poll()) != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                exception = e;
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+    }
+}
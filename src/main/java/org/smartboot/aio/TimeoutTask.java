@@ -0,0 +1,62 @@
+package org.smartboot.aio;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * 时间轮中的超时任务,链表节点直接内嵌于任务对象,调度与取消均无需额外分配内存
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+abstract class TimeoutTask implements Runnable {
+    static final int ST_INIT = 0;
+    static final int ST_SCHEDULED = 1;
+    static final int ST_CANCELLED = 2;
+    static final int ST_EXPIRED = 3;
+    private static final AtomicIntegerFieldUpdater<TimeoutTask> STATE_UPDATER = AtomicIntegerFieldUpdater.newUpdater(TimeoutTask.class, "state");
+    /**
+     * 所属时间轮
+     */
+    HashedWheelTimer timer;
+    /**
+     * 到期时间点,System.nanoTime()
+     */
+    long deadline;
+    /**
+     * 所在的时间轮槽位,-1表示未链入时间轮
+     */
+    int bucket = -1;
+    TimeoutTask prev;
+    TimeoutTask next;
+    private volatile int state = ST_INIT;
+
+    /**
+     * 取消定时任务。任务已到期或从未被调度时返回false
+     */
+    final boolean cancelTimeout() {
+        if (!STATE_UPDATER.compareAndSet(this, ST_SCHEDULED, ST_CANCELLED)) {
+            return false;
+        }
+        timer.cancel(this);
+        return true;
+    }
+
+    /**
+     * 任务已退出时间轮,可被再次调度。仅限时间轮所属线程调用
+     */
+    final boolean isIdle() {
+        return state != ST_SCHEDULED && bucket < 0;
+    }
+
+    final boolean compareAndSetState(int expect, int update) {
+        return STATE_UPDATER.compareAndSet(this, expect, update);
+    }
+
+    final int state() {
+        return state;
+    }
+
+    final void state(int state) {
+        this.state = state;
+    }
+}
@@ -0,0 +1,23 @@
+package org.smartboot.aio;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+
+/**
+ * 借助FileChannel.transferTo(Linux下为sendfile)直接由内核将文件数据写入socket,不经过用户态缓冲区
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+final class TransferFileRegion extends FileRegion {
+
+    TransferFileRegion(FileChannel file, long position, long count) {
+        super(file, position, count);
+    }
+
+    @Override
+    long write(GatheringByteChannel target, long count) throws IOException {
+        return file.transferTo(position, count, target);
+    }
+}
@@ -0,0 +1,24 @@
+package org.smartboot.aio;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 虚拟线程支持。JDK21及以上由 META-INF/versions/21 下的同名类替代
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * 创建每个任务一个虚拟线程的线程池
+     *
+     * @return 当前JDK不支持虚拟线程时返回null
+     */
+    static ExecutorService newExecutor(String prefix) {
+        return null;
+    }
+}
@@ -0,0 +1,127 @@
+package org.smartboot.aio;
+
+import java.util.Queue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Worker运行指标。除输出字节数及关注事件修改次数外,其余计数仅由Worker线程更新,采用普通字段以免引入同步开销;
+ * 输出操作及关注事件的修改可能发生于任意线程,故以LongAdder分段计数,避免多线程竞争同一缓存行。
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+final class WorkerMetrics implements WorkerMetricsMBean {
+    private final String name;
+    /**
+     * Worker的注册队列,快照中为null
+     */
+    private final Queue<?> registers;
+    private final long timestamp;
+    private final int registerQueueDepth;
+    final LongAdder bytesWritten = new LongAdder();
+    final LongAdder interestUpdates = new LongAdder();
+    long selects;
+    long emptySelects;
+    long events;
+    long selectorReads;
+    long directReads;
+    long invokerCutoffs;
+    long bytesRead;
+    long timeouts;
+
+    WorkerMetrics(String name, Queue<?> registers) {
+        this.name = name;
+        this.registers = registers;
+        this.timestamp = 0;
+        this.registerQueueDepth = 0;
+    }
+
+    private WorkerMetrics(WorkerMetrics metrics) {
+        this.name = metrics.name;
+        this.registers = null;
+        this.timestamp = System.nanoTime();
+        this.registerQueueDepth = metrics.registers.size();
+        this.bytesWritten.add(metrics.bytesWritten.sum());
+        this.interestUpdates.add(metrics.interestUpdates.sum());
+        this.selects = metrics.selects;
+        this.emptySelects = metrics.emptySelects;
+        this.events = metrics.events;
+        this.selectorReads = metrics.selectorReads;
+        this.directReads = metrics.directReads;
+        this.invokerCutoffs = metrics.invokerCutoffs;
+        this.bytesRead = metrics.bytesRead;
+        this.timeouts = metrics.timeouts;
+    }
+
+    /**
+     * 生成当前指标的只读快照
+     */
+    WorkerMetrics snapshot() {
+        return new WorkerMetrics(this);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getTimestamp() {
+        return registers == null ? timestamp : System.nanoTime();
+    }
+
+    @Override
+    public long getSelects() {
+        return selects;
+    }
+
+    @Override
+    public long getEmptySelects() {
+        return emptySelects;
+    }
+
+    @Override
+    public long getEvents() {
+        return events;
+    }
+
+    @Override
+    public int getRegisterQueueDepth() {
+        return registers == null ? registerQueueDepth : registers.size();
+    }
+
+    @Override
+    public long getSelectorReads() {
+        return selectorReads;
+    }
+
+    @Override
+    public long getDirectReads() {
+        return directReads;
+    }
+
+    @Override
+    public long getInvokerCutoffs() {
+        return invokerCutoffs;
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    @Override
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    @Override
+    public long getInterestUpdates() {
+        return interestUpdates.sum();
+    }
+}
@@ -0,0 +1,75 @@
+package org.smartboot.aio;
+
+/**
+ * Worker运行指标,各项均为累计值,速率可由两次快照的差值除以时间间隔得到。
+ * 需开启 -Dorg.smartboot.aio.metrics=true,JMX ObjectName 为 org.smartboot.aio:type=Worker,group=*,name=*
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+public interface WorkerMetricsMBean {
+    /**
+     * Worker名称,如 read-0、write-0、accept-0
+     */
+    String getName();
+
+    /**
+     * 采集时间点,System.nanoTime()
+     */
+    long getTimestamp();
+
+    /**
+     * select调用次数
+     */
+    long getSelects();
+
+    /**
+     * 未获取到任何就绪事件的select次数
+     */
+    long getEmptySelects();
+
+    /**
+     * 处理的就绪事件数
+     */
+    long getEvents();
+
+    /**
+     * 待处理的注册请求数
+     */
+    int getRegisterQueueDepth();
+
+    /**
+     * 由就绪事件驱动完成的读操作数
+     */
+    long getSelectorReads();
+
+    /**
+     * 发起读操作时即刻完成的读操作数
+     */
+    long getDirectReads();
+
+    /**
+     * 因连接或本轮循环的调度预算耗尽而转由Selector驱动的次数,JMX属性名沿用InvokerCutoffs
+     */
+    long getInvokerCutoffs();
+
+    /**
+     * 读取的字节数
+     */
+    long getBytesRead();
+
+    /**
+     * 输出的字节数
+     */
+    long getBytesWritten();
+
+    /**
+     * 触发的读写超时次数
+     */
+    long getTimeouts();
+
+    /**
+     * 修改关注事件的次数,每次修改对应一次epoll_ctl等系统调用
+     */
+    long getInterestUpdates();
+}
@@ -0,0 +1,217 @@
+package org.smartboot.aio;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.CompletionHandler;
+
+/**
+ * 连接级写队列,允许在存在未完成写操作时继续提交写请求,由flush线程合并为一次gathering write。
+ * 队列以环形数组存储,稳态下不产生内存分配;所有方法均以队列自身作为锁。
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+final class WriteQueue {
+    /**
+     * 单次gathering write的最大buffer数,对应Linux的IOV_MAX
+     */
+    private static final int MAX_GATHER = 1024;
+    /**
+     * 待输出数据:ByteBuffer、Scattering或FileRegion
+     */
+    private Object[] sources = new Object[16];
+    private CompletionHandler<Number, Object>[] handlers = newHandlers(16);
+    private Object[] attachments = new Object[16];
+    /**
+     * 入队时的待输出字节数,文件区间不占用内存,记为0
+     */
+    private long[] sizes = new long[16];
+    /**
+     * 入队时间点,仅在启用延迟直方图时记录
+     */
+    private long[] times = new long[16];
+    private int head;
+    private int count;
+    /**
+     * 队列中请求入队时的字节数之和
+     */
+    private long bytes;
+    /**
+     * 是否有线程正在执行flush
+     */
+    private boolean flushing;
+    /**
+     * gathering write复用的数组
+     */
+    private ByteBuffer[] gather = new ByteBuffer[16];
+    /**
+     * 最近一次poll移除的请求
+     */
+    boolean polledScattering;
+    FileRegion polledRegion;
+    CompletionHandler<Number, Object> polledHandler;
+    Object polledAttachment;
+    long polledSize;
+    long polledTime;
+
+    @SuppressWarnings("unchecked")
+    private static CompletionHandler<Number, Object>[] newHandlers(int size) {
+        return (CompletionHandler<Number, Object>[]) new CompletionHandler<?, ?>[size];
+    }
+
+    private static long remaining(Object source) {
+        if (source instanceof ByteBuffer) {
+            return ((ByteBuffer) source).remaining();
+        }
+        if (source instanceof FileRegion) {
+            return 0;
+        }
+        return ((Scattering) source).remaining();
+    }
+
+    private static boolean hasRemaining(Object source) {
+        if (source instanceof ByteBuffer) {
+            return ((ByteBuffer) source).hasRemaining();
+        }
+        if (source instanceof FileRegion) {
+            return ((FileRegion) source).hasRemaining();
+        }
+        //gathering write不区分请求,无法按请求累计输出字节数,故以跳过已输出完毕的buffer判断
+        return ((Scattering) source).skip();
+    }
+
+    /**
+     * 写请求入队
+     *
+     * @return 当前无flush线程时返回true,调用方需负责执行flush
+     */
+    synchronized boolean offer(Object source, CompletionHandler<Number, Object> handler, Object attachment) {
+        if (count == sources.length) {
+            grow();
+        }
+        int tail = (head + count) & (sources.length - 1);
+        sources[tail] = source;
+        handlers[tail] = handler;
+        attachments[tail] = attachment;
+        sizes[tail] = remaining(source);
+        bytes += sizes[tail];
+        if (EnhanceAsynchronousChannelGroup.LATENCY_ENABLED) {
+            times[tail] = System.nanoTime();
+        }
+        count++;
+        if (flushing) {
+            return false;
+        }
+        flushing = true;
+        return true;
+    }
+
+    /**
+     * 将队列中待输出的buffer填充至gathering数组,跳过已无剩余数据的buffer,
+     * 使flush线程可据最后一个buffer是否有剩余判断socket缓冲区是否已满。遇到文件区间即停止,待其成为队首后单独输出
+     *
+     * @return 填充的buffer数量
+     */
+    synchronized int gather() {
+        int n = 0;
+        for (int i = 0; i < count && n < MAX_GATHER; i++) {
+            Object source = sources[(head + i) & (sources.length - 1)];
+            if (source instanceof ByteBuffer) {
+                n = add(n, (ByteBuffer) source);
+            } else if (source instanceof FileRegion) {
+                break;
+            } else {
+                Scattering scattering = (Scattering) source;
+                for (int j = 0; j < scattering.getLength() && n < MAX_GATHER; j++) {
+                    n = add(n, scattering.getBuffers()[scattering.getOffset() + j]);
+                }
+            }
+        }
+        return n;
+    }
+
+    private int add(int n, ByteBuffer buffer) {
+        if (!buffer.hasRemaining()) {
+            return n;
+        }
+        if (n == gather.length) {
+            ByteBuffer[] newGather = new ByteBuffer[Math.min(gather.length << 1, MAX_GATHER)];
+            System.arraycopy(gather, 0, newGather, 0, n);
+            gather = newGather;
+        }
+        gather[n] = buffer;
+        return n + 1;
+    }
+
+    ByteBuffer[] gatherBuffers() {
+        return gather;
+    }
+
+    /**
+     * 队首为文件区间时返回该区间
+     */
+    synchronized FileRegion region() {
+        return count > 0 && sources[head] instanceof FileRegion ? (FileRegion) sources[head] : null;
+    }
+
+    /**
+     * 移除队首请求,其回调信息暂存于polled*字段,仅限flush线程访问
+     *
+     * @param force false:仅当队首请求已全部输出时移除;true:无条件移除,用于异常场景
+     */
+    synchronized boolean poll(boolean force) {
+        if (count == 0 || (!force && hasRemaining(sources[head]))) {
+            return false;
+        }
+        polledScattering = sources[head] instanceof Scattering;
+        polledRegion = sources[head] instanceof FileRegion ? (FileRegion) sources[head] : null;
+        polledHandler = handlers[head];
+        polledAttachment = attachments[head];
+        polledSize = sizes[head];
+        bytes -= polledSize;
+        polledTime = times[head];
+        sources[head] = null;
+        handlers[head] = null;
+        attachments[head] = null;
+        head = (head + 1) & (sources.length - 1);
+        count--;
+        return true;
+    }
+
+    synchronized long bytes() {
+        return bytes;
+    }
+
+    /**
+     * 队列为空时结束本轮flush
+     */
+    synchronized boolean finish() {
+        if (count == 0) {
+            flushing = false;
+            return true;
+        }
+        return false;
+    }
+
+    private void grow() {
+        int size = sources.length << 1;
+        Object[] newSources = new Object[size];
+        CompletionHandler<Number, Object>[] newHandlers = newHandlers(size);
+        Object[] newAttachments = new Object[size];
+        long[] newSizes = new long[size];
+        long[] newTimes = new long[size];
+        for (int i = 0; i < count; i++) {
+            int index = (head + i) & (sources.length - 1);
+            newSources[i] = sources[index];
+            newHandlers[i] = handlers[index];
+            newAttachments[i] = attachments[index];
+            newSizes[i] = sizes[index];
+            newTimes[i] = times[index];
+        }
+        sources = newSources;
+        handlers = newHandlers;
+        attachments = newAttachments;
+        sizes = newSizes;
+        times = newTimes;
+        head = 0;
+    }
+}
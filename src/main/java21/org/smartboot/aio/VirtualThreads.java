@@ -0,0 +1,23 @@
+package org.smartboot.aio;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 虚拟线程支持,JDK21及以上版本
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * 创建每个任务一个虚拟线程的线程池
+     */
+    static ExecutorService newExecutor(String prefix) {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix, 0).factory());
+    }
+}
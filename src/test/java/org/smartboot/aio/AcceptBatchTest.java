@@ -0,0 +1,73 @@
+package org.smartboot.aio;
+
+import org.junit.Test;
+
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 启用 org.smartboot.aio.acceptBatch 时批量接入受单连接调度预算限制,预算耗尽后由下一轮循环继续接入backlog内的连接
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+public class AcceptBatchTest extends LoopbackTestSupport {
+    private static final int BUDGET = 4;
+    /**
+     * 每个连接接入时所处的Worker循环轮次,以下字段仅在accept Worker线程中读写,
+     * 测试线程经accepted队列获取连接后读取
+     */
+    private final List<Integer> rounds = new ArrayList<>();
+    private int round;
+    private boolean marked;
+    /**
+     * 注册回调在每轮循环处理就绪事件之前执行,用于标记循环轮次的切换
+     */
+    private final WorkerRegister nextRound = new WorkerRegister() {
+        @Override
+        public void callback(Selector selector) {
+            round++;
+            marked = false;
+        }
+    };
+
+    @Override
+    protected void onAccepted(AsynchronousSocketChannel channel) {
+        rounds.add(round);
+        if (!marked) {
+            marked = true;
+            ((EnhanceAsynchronousChannelGroup) group).getAcceptWorkers()[0].addRegister(nextRound);
+        }
+        super.onAccepted(channel);
+    }
+
+    @Test(timeout = 30000)
+    public void batchLimitedByEventBudget() throws Exception {
+        property("org.smartboot.aio.acceptBatch", 64);
+        property("org.smartboot.aio.channelEventBudget", BUDGET);
+        open(1);
+        int count = 200;
+        for (int i = 0; i < count; i++) {
+            connect();
+        }
+        //连接均已在backlog中,单次可接入事件只能接入预算内的连接
+        acceptAll();
+        for (int i = 0; i < count; i++) {
+            nextAccepted();
+        }
+        assertEquals(0, accepted.size());
+        assertEquals(count, rounds.size());
+        int max = 0;
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            size = i > 0 && rounds.get(i).equals(rounds.get(i - 1)) ? size + 1 : 1;
+            max = Math.max(max, size);
+        }
+        //单次可接入事件接入多个连接,且不超出单连接调度预算
+        assertEquals(rounds.toString(), BUDGET, max);
+    }
+}
@@ -0,0 +1,91 @@
+package org.smartboot.aio;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 启用 org.smartboot.aio.busyPoll 时读Worker在阻塞select之前轮询,轮询期间其他线程不触发wakeup。
+ * 校验由非Worker线程发起的读写不会丢失唤醒,且读超时仍按时触发
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+public class BusyPollTest extends LoopbackTestSupport {
+    private static final long TIMEOUT_MILLIS = 30;
+
+    @Before
+    public void setUp() throws Exception {
+        property("org.smartboot.aio.busyPoll", 1000);
+        start(1);
+    }
+
+    @Test(timeout = 30000)
+    public void echoWithoutLostWakeup() throws Exception {
+        SocketChannel client = connect();
+        AsynchronousSocketChannel channel = nextAccepted();
+        ByteBuffer buffer = ByteBuffer.allocate(4);
+        for (int i = 0; i < 2000; i++) {
+            //间歇空闲超出轮询时长,使Worker转入阻塞select,由后续读操作唤醒
+            if (i % 100 == 0) {
+                Thread.sleep(5);
+            }
+            buffer.clear();
+            //读操作在数据到达前发起,Worker须在轮询或阻塞期间感知注册
+            Future<Integer> read = channel.read(buffer);
+            ByteBuffer request = ByteBuffer.allocate(4);
+            request.putInt(i).flip();
+            client.write(request);
+            while (buffer.hasRemaining()) {
+                assertTrue(read.get(5, TimeUnit.SECONDS) > 0);
+                if (buffer.hasRemaining()) {
+                    read = channel.read(buffer);
+                }
+            }
+            buffer.flip();
+            assertEquals(4, (int) channel.write(buffer).get(5, TimeUnit.SECONDS));
+            assertEquals(i, readFully(client, 4).getInt());
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void readTimeoutStillFires() throws Exception {
+        connect();
+        AsynchronousSocketChannel channel = nextAccepted();
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicLong firedAt = new AtomicLong();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        long start = System.nanoTime();
+        channel.read(ByteBuffer.allocate(16), TIMEOUT_MILLIS, TimeUnit.MILLISECONDS, null, new CompletionHandler<Integer, Void>() {
+            @Override
+            public void completed(Integer result, Void attachment) {
+                latch.countDown();
+            }
+
+            @Override
+            public void failed(Throwable exc, Void attachment) {
+                firedAt.set(System.nanoTime());
+                failure.set(exc);
+                latch.countDown();
+            }
+        });
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(String.valueOf(failure.get()), failure.get() instanceof TimeoutException);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(firedAt.get() - start);
+        //轮询时长远小于超时,触发时刻不受轮询影响
+        assertTrue("fired after " + elapsed + "ms", elapsed >= TIMEOUT_MILLIS && elapsed < TIMEOUT_MILLIS + 50);
+    }
+}
@@ -0,0 +1,148 @@
+package org.smartboot.aio;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 启用 org.smartboot.aio.flushConsolidation 时读回调中提交的多个写请求暂存至本轮循环结束后合并输出,
+ * 超出 org.smartboot.aio.flushThreshold 时提前输出;校验各响应完整、有序地到达对端
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+public class FlushConsolidationTest extends LoopbackTestSupport {
+    private static final int REQUESTS = 2000;
+    private static final int THRESHOLD = 16 * 1024;
+    /**
+     * 写回调的完成顺序,仅在读Worker线程中写入
+     */
+    private final List<Integer> completions = new ArrayList<>();
+    private final CountDownLatch done = new CountDownLatch(1);
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    @Before
+    public void setUp() throws Exception {
+        property("org.smartboot.aio.writeQueue", true);
+        property("org.smartboot.aio.flushConsolidation", true);
+        property("org.smartboot.aio.flushThreshold", THRESHOLD);
+        start(1);
+    }
+
+    @Test(timeout = 30000)
+    public void pipelinedResponsesIntactAndOrdered() throws Exception {
+        final SocketChannel client = connect();
+        final AsynchronousSocketChannel channel = nextAccepted();
+        final CompletionHandler<Integer, Integer> writeHandler = new CompletionHandler<Integer, Integer>() {
+            @Override
+            public void completed(Integer result, Integer seq) {
+                completions.add(seq);
+                if (completions.size() == REQUESTS) {
+                    done.countDown();
+                }
+            }
+
+            @Override
+            public void failed(Throwable exc, Integer seq) {
+                failure.compareAndSet(null, exc);
+                done.countDown();
+            }
+        };
+        //单次读取的多个请求各自提交写请求,由Worker统一flush
+        final ByteBuffer requests = ByteBuffer.allocate(8 * 1024);
+        channel.read(requests, null, new CompletionHandler<Integer, Void>() {
+            @Override
+            public void completed(Integer result, Void attachment) {
+                if (result < 0) {
+                    return;
+                }
+                requests.flip();
+                while (requests.remaining() >= 4) {
+                    int seq = requests.getInt();
+                    channel.write(response(seq), seq, writeHandler);
+                }
+                requests.compact();
+                channel.read(requests, null, this);
+            }
+
+            @Override
+            public void failed(Throwable exc, Void attachment) {
+                failure.compareAndSet(null, exc);
+                done.countDown();
+            }
+        });
+
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    ByteBuffer batch = ByteBuffer.allocate(64 * 4);
+                    for (int i = 0; i < REQUESTS; i++) {
+                        batch.putInt(i);
+                        if (!batch.hasRemaining() || i == REQUESTS - 1) {
+                            batch.flip();
+                            while (batch.hasRemaining()) {
+                                client.write(batch);
+                            }
+                            batch.clear();
+                        }
+                    }
+                } catch (Exception e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+        });
+        writer.start();
+        int total = 0;
+        for (int i = 0; i < REQUESTS; i++) {
+            total += 8 + length(i);
+        }
+        ByteBuffer received = readFully(client, total);
+        assertEquals(total, received.remaining());
+        for (int i = 0; i < REQUESTS; i++) {
+            assertEquals(i, received.getInt());
+            int length = received.getInt();
+            assertEquals(length(i), length);
+            for (int j = 0; j < length; j++) {
+                assertEquals((byte) (i + j), received.get());
+            }
+        }
+        writer.join();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertNull(failure.get());
+        for (int i = 0; i < REQUESTS; i++) {
+            assertEquals(i, completions.get(i).intValue());
+        }
+    }
+
+    /**
+     * 响应长度不一,部分超出flush阈值
+     */
+    private static int length(int seq) {
+        return seq % 500 == 0 ? THRESHOLD * 4 : seq % 64;
+    }
+
+    private static ByteBuffer response(int seq) {
+        int length = length(seq);
+        ByteBuffer buffer = ByteBuffer.allocate(8 + length);
+        buffer.putInt(seq).putInt(length);
+        for (int j = 0; j < length; j++) {
+            buffer.put((byte) (seq + j));
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,49 @@
+package org.smartboot.aio;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 由非Worker线程以Future方式逐个读取,上一次读取的回调与下一次读操作的发起并发执行,校验读事件不会丢失
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+public class FutureReadTest extends LoopbackTestSupport {
+
+    @Before
+    public void setUp() throws Exception {
+        start(1);
+    }
+
+    @Test(timeout = 60000)
+    public void pingPong() throws Exception {
+        SocketChannel client = connect();
+        AsynchronousSocketChannel channel = nextAccepted();
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        ByteBuffer request = ByteBuffer.allocate(8);
+        for (int i = 0; i < 5000; i++) {
+            buffer.clear();
+            Future<Integer> future = channel.read(buffer);
+            request.clear();
+            request.putInt(i).putInt(~i).flip();
+            client.write(request);
+            int size = future.get(5, TimeUnit.SECONDS);
+            while (buffer.position() < 8) {
+                size += channel.read(buffer).get(5, TimeUnit.SECONDS);
+            }
+            assertEquals(8, size);
+            buffer.flip();
+            assertEquals(i, buffer.getInt());
+            assertEquals(~i, buffer.getInt());
+        }
+    }
+}
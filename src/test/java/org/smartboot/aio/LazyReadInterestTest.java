@@ -0,0 +1,84 @@
+package org.smartboot.aio;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 启用 org.smartboot.aio.lazyReadInterest 时读回调结束后保留读事件,仅在无进行中的读操作却触发可读事件时移除;
+ * 移除期间到达的数据由下一次read读取
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+public class LazyReadInterestTest extends LoopbackTestSupport {
+
+    @Before
+    public void setUp() throws Exception {
+        property("org.smartboot.aio.lazyReadInterest", true);
+        start(1);
+    }
+
+    @Test(timeout = 30000)
+    public void readInterestDroppedWhileIdle() throws Exception {
+        SocketChannel client = connect();
+        EnhanceAsynchronousSocketChannel channel = (EnhanceAsynchronousSocketChannel) nextAccepted();
+
+        client.write(ByteBuffer.wrap("a".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("a", read(channel, 1));
+        SelectionKey key = channel.getReadSelectionKey();
+        assertNotNull(key);
+        //读回调结束后读事件仍保留
+        assertTrue((key.interestOps() & SelectionKey.OP_READ) != 0);
+
+        //无进行中的读操作时到达的数据触发可读事件,读事件随之移除
+        client.write(ByteBuffer.wrap("b".getBytes(StandardCharsets.UTF_8)));
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((key.interestOps() & SelectionKey.OP_READ) != 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(0, key.interestOps() & SelectionKey.OP_READ);
+
+        //移除期间到达的数据由下一次read读取
+        assertEquals("b", read(channel, 1));
+    }
+
+    @Test(timeout = 30000)
+    public void pingPongDoesNotStall() throws Exception {
+        SocketChannel client = connect();
+        AsynchronousSocketChannel channel = nextAccepted();
+        for (int i = 0; i < 500; i++) {
+            String message = String.format("%04d", i);
+            client.write(ByteBuffer.wrap(message.getBytes(StandardCharsets.UTF_8)));
+            //部分数据在发起read前到达,覆盖读事件已移除的情况
+            if (i % 50 == 0) {
+                Thread.sleep(20);
+            }
+            assertEquals(message, read(channel, 4));
+            channel.write(ByteBuffer.wrap(message.getBytes(StandardCharsets.UTF_8))).get(5, TimeUnit.SECONDS);
+            assertEquals(message, StandardCharsets.UTF_8.decode(readFully(client, 4)).toString());
+        }
+    }
+
+    /**
+     * 通过Future读取size字节
+     */
+    private static String read(AsynchronousSocketChannel channel, int size) throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        while (buffer.hasRemaining()) {
+            assertTrue(channel.read(buffer).get(5, TimeUnit.SECONDS) > 0);
+        }
+        buffer.flip();
+        return StandardCharsets.UTF_8.decode(buffer).toString();
+    }
+}
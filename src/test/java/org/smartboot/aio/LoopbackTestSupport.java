@@ -0,0 +1,146 @@
+package org.smartboot.aio;
+
+import org.junit.After;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousChannelGroup;
+import java.nio.channels.AsynchronousServerSocketChannel;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * 环回地址测试的公共部分:以指定的系统属性创建group及服务端,由客户端以阻塞式SocketChannel连接。
+ * 系统属性在group创建时读取,测试结束后统一清除
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+abstract class LoopbackTestSupport {
+    protected final EnhanceAsynchronousChannelProvider provider = new EnhanceAsynchronousChannelProvider();
+    protected AsynchronousChannelGroup group;
+    protected AsynchronousServerSocketChannel server;
+    protected InetSocketAddress address;
+    /**
+     * 服务端接入的连接
+     */
+    protected final BlockingQueue<AsynchronousSocketChannel> accepted = new LinkedBlockingQueue<>();
+    private final List<String> properties = new ArrayList<>();
+    private final List<SocketChannel> clients = new ArrayList<>();
+    private final List<AsynchronousSocketChannel> channels = new ArrayList<>();
+
+    protected void property(String key, Object value) {
+        System.setProperty(key, String.valueOf(value));
+        properties.add(key);
+    }
+
+    /**
+     * 创建group及服务端,不发起accept
+     */
+    protected void open(int threadNum) throws IOException {
+        group = provider.openAsynchronousChannelGroup(threadNum, Executors.defaultThreadFactory());
+        server = provider.openAsynchronousServerSocketChannel(group);
+        server.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        address = (InetSocketAddress) server.getLocalAddress();
+    }
+
+    /**
+     * 创建group及服务端,接入的连接存入accepted
+     */
+    protected void start(int threadNum) throws IOException {
+        open(threadNum);
+        acceptAll();
+    }
+
+    /**
+     * 持续发起accept,接入的连接存入accepted
+     */
+    protected void acceptAll() {
+        server.accept(null, new CompletionHandler<AsynchronousSocketChannel, Void>() {
+            @Override
+            public void completed(AsynchronousSocketChannel result, Void attachment) {
+                onAccepted(result);
+                server.accept(null, this);
+            }
+
+            @Override
+            public void failed(Throwable exc, Void attachment) {
+            }
+        });
+    }
+
+    /**
+     * 在accept线程中回调
+     */
+    protected void onAccepted(AsynchronousSocketChannel channel) {
+        accepted.offer(channel);
+    }
+
+    protected SocketChannel connect() throws IOException {
+        SocketChannel client = SocketChannel.open(address);
+        clients.add(client);
+        return client;
+    }
+
+    protected AsynchronousSocketChannel nextAccepted() throws InterruptedException {
+        AsynchronousSocketChannel channel = accepted.poll(5, TimeUnit.SECONDS);
+        assertNotNull("connection not accepted", channel);
+        return track(channel);
+    }
+
+    /**
+     * 测试结束时关闭
+     */
+    protected AsynchronousSocketChannel track(AsynchronousSocketChannel channel) {
+        channels.add(channel);
+        return channel;
+    }
+
+    /**
+     * 阻塞读取size字节
+     */
+    protected static ByteBuffer readFully(SocketChannel client, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        while (buffer.hasRemaining()) {
+            if (client.read(buffer) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (SocketChannel client : clients) {
+            client.close();
+        }
+        accepted.drainTo(channels);
+        for (AsynchronousSocketChannel channel : channels) {
+            channel.close();
+        }
+        if (server != null) {
+            server.close();
+        }
+        if (group != null) {
+            group.shutdownNow();
+            group.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        for (String key : properties) {
+            System.clearProperty(key);
+        }
+    }
+}
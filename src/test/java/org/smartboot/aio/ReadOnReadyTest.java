@@ -0,0 +1,93 @@
+package org.smartboot.aio;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * readOnReady由读Worker的内存池借出buffer,归还后可再次借出;重复归还及非借出的buffer均被拒绝
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+public class ReadOnReadyTest extends LoopbackTestSupport {
+    private static final int POOLED_BUFFER_SIZE = 1024;
+    /**
+     * 读回调的结果,对端关闭时为EOF
+     */
+    private static final ByteBuffer EOF = ByteBuffer.allocate(0);
+    private final BlockingQueue<ByteBuffer> results = new LinkedBlockingQueue<>();
+    private final CompletionHandler<ByteBuffer, Void> handler = new CompletionHandler<ByteBuffer, Void>() {
+        @Override
+        public void completed(ByteBuffer result, Void attachment) {
+            results.offer(result == null ? EOF : result);
+        }
+
+        @Override
+        public void failed(Throwable exc, Void attachment) {
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        property("org.smartboot.aio.pooledBufferSize", POOLED_BUFFER_SIZE);
+        start(1);
+    }
+
+    @Test(timeout = 30000)
+    public void leaseAndRelease() throws Exception {
+        SocketChannel client = connect();
+        AsynchronousSocketChannel channel = nextAccepted();
+
+        client.write(ByteBuffer.wrap("hello".getBytes(StandardCharsets.UTF_8)));
+        EnhanceAsynchronousChannelProvider.readOnReady(channel, null, handler);
+        ByteBuffer first = results.poll(5, TimeUnit.SECONDS);
+        assertNotNull(first);
+        assertTrue(first.isDirect());
+        assertEquals(POOLED_BUFFER_SIZE, first.capacity());
+        assertEquals("hello", StandardCharsets.UTF_8.decode(first).toString());
+        //由测试线程归还
+        EnhanceAsynchronousChannelProvider.release(channel, first);
+
+        //已归还的buffer不可重复归还
+        try {
+            EnhanceAsynchronousChannelProvider.release(channel, first);
+            fail("double release accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+        //同规格但并非借出的buffer不予回收
+        try {
+            EnhanceAsynchronousChannelProvider.release(channel, ByteBuffer.allocateDirect(POOLED_BUFFER_SIZE));
+            fail("foreign buffer accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+
+        //归还的buffer被再次借出,且已清空
+        client.write(ByteBuffer.wrap("world".getBytes(StandardCharsets.UTF_8)));
+        EnhanceAsynchronousChannelProvider.readOnReady(channel, null, handler);
+        ByteBuffer second = results.poll(5, TimeUnit.SECONDS);
+        assertSame(first, second);
+        assertEquals("world", StandardCharsets.UTF_8.decode(second).toString());
+        EnhanceAsynchronousChannelProvider.release(channel, second);
+
+        //对端关闭时回调null,无需归还
+        client.close();
+        EnhanceAsynchronousChannelProvider.readOnReady(channel, null, handler);
+        assertSame(EOF, results.poll(5, TimeUnit.SECONDS));
+        EnhanceAsynchronousChannelProvider.release(channel, null);
+    }
+}
@@ -0,0 +1,61 @@
+package org.smartboot.aio;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 读超时由Worker的时间轮触发,校验触发时刻与设定超时的偏差在一个刻度以内
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+public class ReadTimeoutTest extends LoopbackTestSupport {
+    private static final long TIMEOUT_MILLIS = 30;
+
+    @Before
+    public void setUp() throws Exception {
+        start(1);
+    }
+
+    @Test(timeout = 30000)
+    public void readTimeoutFiresOnTime() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            //超时后连接不再允许读取
+            connect();
+            AsynchronousSocketChannel channel = nextAccepted();
+            final CountDownLatch latch = new CountDownLatch(1);
+            final AtomicLong firedAt = new AtomicLong();
+            final AtomicReference<Throwable> failure = new AtomicReference<>();
+            long start = System.nanoTime();
+            channel.read(ByteBuffer.allocate(16), TIMEOUT_MILLIS, TimeUnit.MILLISECONDS, null, new CompletionHandler<Integer, Void>() {
+                @Override
+                public void completed(Integer result, Void attachment) {
+                    latch.countDown();
+                }
+
+                @Override
+                public void failed(Throwable exc, Void attachment) {
+                    firedAt.set(System.nanoTime());
+                    failure.set(exc);
+                    latch.countDown();
+                }
+            });
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertTrue(String.valueOf(failure.get()), failure.get() instanceof TimeoutException);
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(firedAt.get() - start);
+            //默认刻度10ms,另留出调度抖动的余量
+            assertTrue("fired after " + elapsed + "ms", elapsed >= TIMEOUT_MILLIS && elapsed < TIMEOUT_MILLIS + 50);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package org.smartboot.aio;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 启用 org.smartboot.aio.shardedAccept 时由多个accept线程接入同一地址上的连接,校验接入数量及连接可用
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+public class ShardedAcceptTest extends LoopbackTestSupport {
+    private static final int ACCEPT_THREADS = 4;
+    private final Set<String> acceptThreads = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    @Before
+    public void setUp() {
+        property("org.smartboot.aio.shardedAccept", true);
+        property("org.smartboot.aio.acceptThreadNum", ACCEPT_THREADS);
+    }
+
+    @Override
+    protected void onAccepted(AsynchronousSocketChannel channel) {
+        acceptThreads.add(Thread.currentThread().getName());
+        super.onAccepted(channel);
+    }
+
+    @Test(timeout = 30000)
+    public void acceptAcrossShards() throws Exception {
+        start(2);
+        int count = 400;
+        List<SocketChannel> clients = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            clients.add(connect());
+        }
+        for (int i = 0; i < count; i++) {
+            AsynchronousSocketChannel channel = nextAccepted();
+            Future<Integer> future = channel.write(ByteBuffer.wrap(new byte[]{(byte) i}));
+            assertEquals(1, (int) future.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(0, accepted.size());
+        for (SocketChannel client : clients) {
+            assertEquals(1, readFully(client, 1).remaining());
+        }
+        //内核按四元组散列分摊,400个连接足以落在多个分片上
+        assertTrue(acceptThreads.toString(), acceptThreads.size() > 1);
+    }
+
+    @Test(timeout = 30000)
+    public void futureAccept() throws Exception {
+        open(2);
+        assertTrue(server instanceof ShardedAsynchronousServerSocketChannel);
+        //逐个接入
+        for (int i = 0; i < 20; i++) {
+            Future<AsynchronousSocketChannel> future = server.accept();
+            SocketChannel client = connect();
+            echo(client, track(future.get(5, TimeUnit.SECONDS)), i);
+        }
+        //连接先于accept建立,分布于各分片的backlog
+        int count = 100;
+        List<SocketChannel> clients = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            clients.add(connect());
+        }
+        List<AsynchronousSocketChannel> channels = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            channels.add(track(server.accept().get(5, TimeUnit.SECONDS)));
+        }
+        for (int i = 0; i < count; i++) {
+            channels.get(i).write(ByteBuffer.wrap(new byte[]{(byte) i})).get(5, TimeUnit.SECONDS);
+        }
+        int received = 0;
+        for (SocketChannel client : clients) {
+            received += readFully(client, 1).remaining();
+        }
+        assertEquals(count, received);
+    }
+
+    @Test(timeout = 30000)
+    public void oneCompletionPerAccept() throws Exception {
+        open(2);
+        int count = 100;
+        for (int i = 0; i < count; i++) {
+            connect();
+        }
+        final AtomicInteger completions = new AtomicInteger();
+        final AtomicReference<Thread> running = new AtomicReference<>();
+        final AtomicInteger overlaps = new AtomicInteger();
+        final CountDownLatch first = new CountDownLatch(1);
+        //由非accept线程发起,连接已分布于各分片的backlog
+        server.accept(null, new CompletionHandler<AsynchronousSocketChannel, Void>() {
+            @Override
+            public void completed(AsynchronousSocketChannel result, Void attachment) {
+                track(result);
+                completions.incrementAndGet();
+                first.countDown();
+            }
+
+            @Override
+            public void failed(Throwable exc, Void attachment) {
+            }
+        });
+        assertTrue(first.await(5, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        assertEquals(1, completions.get());
+        //在回调中再次发起accept,每次accept仅回调一次
+        final CountDownLatch all = new CountDownLatch(count - 1);
+        server.accept(null, new CompletionHandler<AsynchronousSocketChannel, Void>() {
+            @Override
+            public void completed(AsynchronousSocketChannel result, Void attachment) {
+                //再次发起accept之前,不应有其他回调同时执行
+                if (!running.compareAndSet(null, Thread.currentThread())) {
+                    overlaps.incrementAndGet();
+                }
+                onAccepted(result);
+                all.countDown();
+                running.set(null);
+                if (all.getCount() > 0) {
+                    server.accept(null, this);
+                }
+            }
+
+            @Override
+            public void failed(Throwable exc, Void attachment) {
+            }
+        });
+        assertTrue(all.await(5, TimeUnit.SECONDS));
+        assertEquals(0, overlaps.get());
+        for (int i = 0; i < count - 1; i++) {
+            nextAccepted();
+        }
+        assertEquals(0, accepted.size());
+    }
+
+    private static void echo(SocketChannel client, AsynchronousSocketChannel channel, int i) throws Exception {
+        assertEquals(1, (int) channel.write(ByteBuffer.wrap(new byte[]{(byte) i})).get(5, TimeUnit.SECONDS));
+        assertEquals((byte) i, readFully(client, 1).get());
+    }
+}
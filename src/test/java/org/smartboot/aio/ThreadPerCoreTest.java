@@ -0,0 +1,116 @@
+package org.smartboot.aio;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.SocketChannel;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 启用 org.smartboot.aio.threadPerCore 时连接的读写由同一个Worker处理并共用同一个SelectionKey。
+ * 服务端回显的数据量远超socket缓冲区,写操作需关注可写事件,与读事件叠加在同一个SelectionKey上
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+public class ThreadPerCoreTest extends LoopbackTestSupport {
+    private static final int SIZE = 8 * 1024 * 1024;
+    /**
+     * 执行读写回调的线程
+     */
+    private final Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    @Before
+    public void setUp() throws Exception {
+        property("org.smartboot.aio.threadPerCore", true);
+        start(2);
+    }
+
+    @Test(timeout = 30000)
+    public void readWriteShareWorkerAndKey() throws Exception {
+        final SocketChannel client = connect();
+        final EnhanceAsynchronousSocketChannel channel = (EnhanceAsynchronousSocketChannel) nextAccepted();
+        final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        final CompletionHandler<Integer, Void> writeHandler = new CompletionHandler<Integer, Void>() {
+            @Override
+            public void completed(Integer result, Void attachment) {
+                threads.add(Thread.currentThread());
+                if (buffer.hasRemaining()) {
+                    channel.write(buffer, null, this);
+                } else {
+                    buffer.clear();
+                    echo(channel, buffer, this);
+                }
+            }
+
+            @Override
+            public void failed(Throwable exc, Void attachment) {
+                failure.compareAndSet(null, exc);
+            }
+        };
+        echo(channel, buffer, writeHandler);
+
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    ByteBuffer data = ByteBuffer.allocate(SIZE);
+                    for (int i = 0; i < SIZE; i++) {
+                        data.put((byte) i);
+                    }
+                    data.flip();
+                    while (data.hasRemaining()) {
+                        client.write(data);
+                    }
+                } catch (Exception e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+        });
+        writer.start();
+        //延迟读取,使服务端回显写满socket缓冲区后关注可写事件
+        Thread.sleep(200);
+        ByteBuffer received = readFully(client, SIZE);
+        writer.join();
+        assertNull(failure.get());
+        assertEquals(SIZE, received.remaining());
+        for (int i = 0; i < SIZE; i++) {
+            assertEquals((byte) i, received.get(i));
+        }
+
+        //读写回调均在同一个io Worker线程中执行
+        assertEquals(threads.toString(), 1, threads.size());
+        assertSame(channel.getReadSelectionKey(), channel.getWriteSelectionKey());
+        assertNotNull(channel.getReadSelectionKey());
+    }
+
+    private void echo(final EnhanceAsynchronousSocketChannel channel, final ByteBuffer buffer, final CompletionHandler<Integer, Void> writeHandler) {
+        channel.read(buffer, null, new CompletionHandler<Integer, Void>() {
+            @Override
+            public void completed(Integer result, Void attachment) {
+                threads.add(Thread.currentThread());
+                if (result < 0) {
+                    return;
+                }
+                buffer.flip();
+                channel.write(buffer, null, writeHandler);
+            }
+
+            @Override
+            public void failed(Throwable exc, Void attachment) {
+                failure.compareAndSet(null, exc);
+            }
+        });
+    }
+}
@@ -0,0 +1,159 @@
+package org.smartboot.aio;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * transferFrom(sendfile)及writeMapped经环回地址输出文件区间,校验客户端收到的字节与回调的字节数
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+public class TransferFromTest extends LoopbackTestSupport {
+    private static final int FILE_SIZE = 4 * 1024 * 1024 + 123;
+    private File file;
+    private byte[] content;
+    private RandomAccessFile randomAccessFile;
+
+    @Before
+    public void setUp() throws IOException {
+        content = new byte[FILE_SIZE];
+        new Random(7).nextBytes(content);
+        file = File.createTempFile("transfer", ".bin");
+        randomAccessFile = new RandomAccessFile(file, "rw");
+        randomAccessFile.write(content);
+    }
+
+    @After
+    public void deleteFile() throws IOException {
+        randomAccessFile.close();
+        file.delete();
+    }
+
+    @Test(timeout = 30000)
+    public void transferFrom() throws Exception {
+        start(1);
+        verify(false, 1000, FILE_SIZE - 1000, FILE_SIZE - 1000);
+    }
+
+    @Test(timeout = 30000)
+    public void transferFromStopsAtEndOfFile() throws Exception {
+        start(1);
+        verify(false, FILE_SIZE - 4096, 1 << 20, 4096);
+    }
+
+    @Test(timeout = 30000)
+    public void writeMapped() throws Exception {
+        //窗口小于文件,覆盖跨窗口的预取与解除映射
+        property("org.smartboot.aio.mappedWindowSize", 1024 * 1024);
+        start(1);
+        verify(true, 1000, FILE_SIZE - 1000, FILE_SIZE - 1000);
+    }
+
+    @Test(timeout = 30000)
+    public void transferFromWithWriteQueue() throws Exception {
+        property("org.smartboot.aio.writeQueue", true);
+        start(1);
+        verify(false, 1000, FILE_SIZE - 1000, FILE_SIZE - 1000);
+    }
+
+    @Test(timeout = 30000)
+    public void writeMappedWithWriteQueue() throws Exception {
+        property("org.smartboot.aio.writeQueue", true);
+        property("org.smartboot.aio.mappedWindowSize", 1024 * 1024);
+        start(1);
+        verify(true, FILE_SIZE - 4096, 1 << 20, 4096);
+        verify(true, 1000, FILE_SIZE - 1000, FILE_SIZE - 1000);
+    }
+
+    /**
+     * 客户端先暂停读取,使socket缓冲区写满,覆盖由可写事件驱动的断点续传。
+     * 启用写队列时文件区间前后各排入一个写请求,校验输出顺序
+     */
+    private void verify(boolean mapped, long position, long count, int expected) throws Exception {
+        SocketChannel client = connect();
+        AsynchronousSocketChannel channel = nextAccepted();
+        channel.setOption(StandardSocketOptions.SO_SNDBUF, 64 * 1024);
+        boolean queued = ((EnhanceAsynchronousChannelGroup) group).isWriteQueueEnabled();
+        final CountDownLatch bufferLatch = new CountDownLatch(queued ? 2 : 0);
+        CompletionHandler<Integer, Void> bufferHandler = new CompletionHandler<Integer, Void>() {
+            @Override
+            public void completed(Integer result, Void attachment) {
+                bufferLatch.countDown();
+            }
+
+            @Override
+            public void failed(Throwable exc, Void attachment) {
+            }
+        };
+        byte[] prefix = {1, 2, 3};
+        byte[] suffix = {4, 5};
+        if (queued) {
+            channel.write(ByteBuffer.wrap(prefix), null, bufferHandler);
+        }
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicLong transferred = new AtomicLong(-1);
+        final AtomicInteger completions = new AtomicInteger();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        CompletionHandler<Long, Void> handler = new CompletionHandler<Long, Void>() {
+            @Override
+            public void completed(Long result, Void attachment) {
+                transferred.set(result);
+                completions.incrementAndGet();
+                latch.countDown();
+            }
+
+            @Override
+            public void failed(Throwable exc, Void attachment) {
+                failure.set(exc);
+                latch.countDown();
+            }
+        };
+        FileChannel fileChannel = randomAccessFile.getChannel();
+        if (mapped) {
+            EnhanceAsynchronousChannelProvider.writeMapped(channel, fileChannel, position, count, null, handler);
+        } else {
+            EnhanceAsynchronousChannelProvider.transferFrom(channel, fileChannel, position, count, null, handler);
+        }
+        if (queued) {
+            channel.write(ByteBuffer.wrap(suffix), null, bufferHandler);
+        }
+        Thread.sleep(100);
+        if (queued) {
+            assertEquals(ByteBuffer.wrap(prefix), readFully(client, prefix.length));
+        }
+        ByteBuffer received = readFully(client, expected);
+        if (queued) {
+            assertEquals(ByteBuffer.wrap(suffix), readFully(client, suffix.length));
+            assertTrue(bufferLatch.await(5, TimeUnit.SECONDS));
+        }
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertNull(failure.get());
+        assertEquals(expected, transferred.get());
+        assertEquals(1, completions.get());
+        assertEquals(expected, received.remaining());
+        assertEquals(ByteBuffer.wrap(content, (int) position, expected), received);
+        channel.close();
+    }
+}
@@ -0,0 +1,158 @@
+package org.smartboot.aio;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 启用 org.smartboot.aio.writeQueue 时连续提交写请求,校验输出顺序、字节数及每个请求各回调一次
+ *
+ * @author 三刀
+ * @version V1.0 , 2020/6/20
+ */
+public class WriteQueueTest extends LoopbackTestSupport {
+
+    @Before
+    public void setUp() throws Exception {
+        property("org.smartboot.aio.writeQueue", true);
+        start(1);
+    }
+
+    @Test(timeout = 30000)
+    public void pipelinedWrites() throws Exception {
+        SocketChannel client = connect();
+        AsynchronousSocketChannel channel = nextAccepted();
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        Recorder recorder = new Recorder(300);
+        for (int i = 0; i < 300; i++) {
+            //每隔一段混入大块数据,使socket缓冲区写满后由可写事件继续输出
+            byte[] data = payload(i, i % 100 == 50 ? 2 * 1024 * 1024 : 1 + i % 64);
+            expected.write(data);
+            if (i % 3 == 0) {
+                int half = data.length / 2;
+                ByteBuffer[] buffers = {ByteBuffer.wrap(data, 0, half).slice(), ByteBuffer.wrap(data, half, data.length - half).slice()};
+                channel.write(buffers, 0, 2, 0, TimeUnit.MILLISECONDS, i, recorder.scattering);
+            } else {
+                channel.write(ByteBuffer.wrap(data), i, recorder.single);
+            }
+        }
+        byte[] received = readFully(client, expected.size()).array();
+        assertTrue(recorder.latch.await(5, TimeUnit.SECONDS));
+        assertArrayEquals(expected.toByteArray(), received);
+        recorder.verify(300);
+    }
+
+    @Test(timeout = 30000)
+    public void emptyBufferBehindPartialWrite() throws Exception {
+        SocketChannel client = connect();
+        AsynchronousSocketChannel channel = nextAccepted();
+        Recorder recorder = new Recorder(2);
+        byte[] large = payload(0, 64 * 1024 * 1024);
+        //大于环回连接的收发缓冲区之和,客户端未读取时仅部分输出,其后的空buffer不应被误判为socket缓冲区仍可写
+        channel.write(new ByteBuffer[]{ByteBuffer.wrap(large), ByteBuffer.allocate(0)}, 0, 2, 0, TimeUnit.MILLISECONDS, 0, recorder.scattering);
+        channel.write(ByteBuffer.allocate(0), 1, recorder.single);
+        Thread.sleep(100);
+        ByteBuffer received = readFully(client, large.length);
+        assertTrue(recorder.latch.await(5, TimeUnit.SECONDS));
+        assertEquals(Collections.emptyList(), recorder.failures);
+        assertEquals(Arrays.asList(0, 1), recorder.order);
+        assertEquals(Arrays.asList((long) large.length, 0L), recorder.sizes);
+        assertEquals(ByteBuffer.wrap(large), received);
+    }
+
+    @Test(timeout = 30000)
+    public void timedWriteRejected() throws Exception {
+        connect();
+        AsynchronousSocketChannel channel = nextAccepted();
+        Recorder recorder = new Recorder(1);
+        try {
+            channel.write(ByteBuffer.wrap(payload(0, 8)), 1, TimeUnit.SECONDS, 0, recorder.single);
+            fail("queued write accepted a timeout");
+        } catch (UnsupportedOperationException expected) {
+        }
+        //拒绝超时请求后不影响后续写入
+        channel.write(ByteBuffer.wrap(payload(1, 8)), 1, recorder.single);
+        assertTrue(recorder.latch.await(5, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList(1), recorder.order);
+    }
+
+    private static byte[] payload(int index, int size) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) (index + i);
+        }
+        return data;
+    }
+
+    /**
+     * 按回调顺序记录请求序号及字节数
+     */
+    static final class Recorder {
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+        final List<Long> sizes = Collections.synchronizedList(new ArrayList<Long>());
+        final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+        final CountDownLatch latch;
+        final CompletionHandler<Integer, Integer> single = new CompletionHandler<Integer, Integer>() {
+            @Override
+            public void completed(Integer result, Integer attachment) {
+                record(attachment, result);
+            }
+
+            @Override
+            public void failed(Throwable exc, Integer attachment) {
+                fail(exc);
+            }
+        };
+        final CompletionHandler<Long, Integer> scattering = new CompletionHandler<Long, Integer>() {
+            @Override
+            public void completed(Long result, Integer attachment) {
+                record(attachment, result);
+            }
+
+            @Override
+            public void failed(Throwable exc, Integer attachment) {
+                fail(exc);
+            }
+        };
+
+        Recorder(int count) {
+            latch = new CountDownLatch(count);
+        }
+
+        private void record(int index, long size) {
+            order.add(index);
+            sizes.add(size);
+            latch.countDown();
+        }
+
+        private void fail(Throwable exc) {
+            failures.add(exc);
+            latch.countDown();
+        }
+
+        void verify(int count) {
+            assertEquals(Collections.emptyList(), failures);
+            assertEquals(count, order.size());
+            for (int i = 0; i < count; i++) {
+                assertEquals(i, (int) order.get(i));
+                assertEquals(i % 100 == 50 ? 2 * 1024 * 1024 : 1 + i % 64, (long) sizes.get(i));
+            }
+        }
+    }
+}